@@ -0,0 +1,86 @@
+/**
+ * This file represents the puzzles used by the benchmarks.
+ */
+package sudoku;
+
+import java.util.Random;
+
+/**
+ * The bundled grids, plus a larger set derived from them.
+ *
+ * @author arthurmanoha
+ */
+final class Corpus {
+
+    static final String[] BUNDLED = {
+        Grid.grid1, Grid.grid2, Grid.grid3, Grid.grid4, Grid.grid5, Grid.grid6, Grid.grid7
+    };
+
+    private Corpus() {
+    }
+
+    /**
+     * Find a bundled grid by its name.
+     *
+     * @param name "grid1" to "grid7"
+     */
+    static String bundled(String name) {
+        return BUNDLED[Integer.parseInt(name.substring("grid".length())) - 1];
+    }
+
+    /**
+     * Build puzzles from the bundled grids by relabeling the digits, swapping
+     * lines inside a band, swapping bands, and transposing. Each puzzle keeps
+     * the difficulty of the grid it comes from.
+     *
+     * @param count the number of puzzles
+     * @param seed the seed of the random generator, for reproducible runs
+     */
+    static String[] generate(int count, long seed) {
+        Random random = new Random(seed);
+        String[] puzzles = new String[count];
+        int[] digits = new int[10];
+        int[] lines = new int[9];
+        char[] out = new char[81];
+        for (int n = 0; n < count; n++) {
+            String source = BUNDLED[n % BUNDLED.length];
+
+            // Digit relabeling; 0 stays 0.
+            for (int d = 0; d <= 9; d++) {
+                digits[d] = d;
+            }
+            shuffle(digits, 1, 9, random);
+
+            // Line order: bands in random order, lines in random order inside.
+            int[] bands = {0, 1, 2};
+            shuffle(bands, 0, 3, random);
+            for (int band = 0; band < 3; band++) {
+                int[] inBand = {0, 1, 2};
+                shuffle(inBand, 0, 3, random);
+                for (int i = 0; i < 3; i++) {
+                    lines[3 * band + i] = 3 * bands[band] + inBand[i];
+                }
+            }
+            boolean transpose = random.nextBoolean();
+
+            for (int line = 0; line < 9; line++) {
+                for (int col = 0; col < 9; col++) {
+                    int from = lines[line] * 9 + col;
+                    int to = transpose ? col * 9 + line : line * 9 + col;
+                    out[to] = (char) ('0' + digits[source.charAt(from) - '0']);
+                }
+            }
+            puzzles[n] = new String(out);
+        }
+        return puzzles;
+    }
+
+    private static void shuffle(int[] values, int from, int length, Random random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[from + i];
+            values[from + i] = values[from + j];
+            values[from + j] = tmp;
+        }
+    }
+}
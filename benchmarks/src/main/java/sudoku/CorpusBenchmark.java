@@ -0,0 +1,88 @@
+/**
+ * This file represents the benchmark of a whole set of puzzles.
+ */
+package sudoku;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the solvers over a set of puzzles derived from the bundled
+ * grids, with one reused grid.
+ *
+ * @author arthurmanoha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CorpusBenchmark {
+
+    private static final int NB_PUZZLES = 1000;
+
+    private String[] puzzles;
+    private Grid grid;
+    private SolutionCache cache;
+
+    @Setup
+    public void setup() {
+        puzzles = Corpus.generate(NB_PUZZLES, 42);
+        grid = new Grid();
+        cache = new SolutionCache(NB_PUZZLES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NB_PUZZLES)
+    public int propagation() {
+        int nbSolved = 0;
+        for (String puzzle : puzzles) {
+            grid.initGrid(puzzle);
+            if (grid.solveWithPropagation()) {
+                nbSolved++;
+            }
+        }
+        return nbSolved;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NB_PUZZLES)
+    public int dancingLinks() {
+        int nbSolved = 0;
+        for (String puzzle : puzzles) {
+            grid.initGrid(puzzle);
+            if (grid.solveWithDancingLinks()) {
+                nbSolved++;
+            }
+        }
+        return nbSolved;
+    }
+
+    /**
+     * The puzzles are variants of the bundled grids, so almost all of them
+     * are answered from the cache.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NB_PUZZLES)
+    public int cached() {
+        int nbSolved = 0;
+        for (String puzzle : puzzles) {
+            grid.initGrid(puzzle);
+            if (cache.solve(grid)) {
+                nbSolved++;
+            }
+        }
+        return nbSolved;
+    }
+}
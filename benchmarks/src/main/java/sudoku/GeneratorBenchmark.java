@@ -0,0 +1,48 @@
+/**
+ * This file represents the benchmark of the puzzle generator.
+ */
+package sudoku;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to generate one 9x9 puzzle with a unique solution, clues removed
+ * until none can be.
+ *
+ * @author arthurmanoha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    private PuzzleGenerator generator;
+    private int[] puzzle;
+    private long index;
+
+    @Setup
+    public void setup() {
+        generator = new PuzzleGenerator(9, 42);
+        puzzle = new int[81];
+    }
+
+    @Benchmark
+    public int[] generate() {
+        generator.generate(index, puzzle);
+        index++;
+        return puzzle;
+    }
+}
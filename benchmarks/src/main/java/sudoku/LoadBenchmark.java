@@ -0,0 +1,79 @@
+/**
+ * This file represents the benchmark of the puzzle readers.
+ */
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to load a puzzle into a reused grid, from the text format and from a
+ * memory-mapped packed file. Run with the GC profiler to check that the
+ * packed path allocates nothing.
+ *
+ * @author arthurmanoha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+
+    private static final int NB_PUZZLES = 1000;
+
+    private String[] puzzles;
+    private Path packedFile;
+    private PackedReader packed;
+    private Grid grid;
+
+    @Setup
+    public void setup() throws IOException {
+        puzzles = Corpus.generate(NB_PUZZLES, 42);
+        packedFile = Files.createTempFile("corpus", ".sdkp");
+        PackedPuzzles.convert(new BufferedReader(new StringReader(String.join("\n", puzzles))), packedFile);
+        packed = new PackedReader(packedFile);
+        grid = new Grid();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        packed.close();
+        Files.deleteIfExists(packedFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NB_PUZZLES)
+    public Grid text() {
+        for (String puzzle : puzzles) {
+            grid.initGrid(puzzle);
+        }
+        return grid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NB_PUZZLES)
+    public Grid packed() {
+        for (int i = 0; i < NB_PUZZLES; i++) {
+            packed.readInto(i, grid);
+        }
+        return grid;
+    }
+}
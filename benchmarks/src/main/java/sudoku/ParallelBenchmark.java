@@ -0,0 +1,60 @@
+/**
+ * This file represents the benchmarks of the parallel search.
+ */
+package sudoku;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to the first solution of a single grid, depending on the number of
+ * threads of the parallel search. Compare with SolverBenchmark.propagation on
+ * the same grid.
+ *
+ * @author arthurmanoha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+
+    @Param({"grid4", "grid7"})
+    public String gridName;
+
+    @Param({"1", "2", "4", "8"})
+    public int nbThreads;
+
+    private String puzzle;
+    private Grid grid;
+
+    @Setup
+    public void setup() {
+        puzzle = Corpus.bundled(gridName);
+        grid = new Grid();
+    }
+
+    @Benchmark
+    public boolean solveInParallel() {
+        grid.initGrid(puzzle);
+        return grid.solveInParallel(nbThreads);
+    }
+
+    @Benchmark
+    public long countSolutions() {
+        grid.initGrid(puzzle);
+        return grid.countSolutions(2, nbThreads);
+    }
+}
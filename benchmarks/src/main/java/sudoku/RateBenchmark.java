@@ -0,0 +1,48 @@
+/**
+ * This file represents the benchmark of the difficulty rater.
+ */
+package sudoku;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to rate one bundled grid, reusing the rater.
+ *
+ * @author arthurmanoha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateBenchmark {
+
+    @Param({"grid1", "grid3", "grid5"})
+    public String gridName;
+
+    private String puzzle;
+    private DifficultyRater rater;
+
+    @Setup
+    public void setup() {
+        puzzle = Corpus.bundled(gridName);
+        rater = new DifficultyRater();
+    }
+
+    @Benchmark
+    public Rating rate() {
+        return rater.rate(puzzle);
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * This file represents the benchmarks of the rule passes.
+ */
+package sudoku;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of one pass of each rule, of the rules applied to a fixpoint by the
+ * Propagator, and of a full isCorrect() check.
+ *
+ * A rule pass changes the grid, so each rule benchmark reloads the puzzle
+ * first; 'load' measures that reload alone and should be subtracted.
+ *
+ * @author arthurmanoha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleBenchmark {
+
+    @Param({"grid1", "grid3"})
+    public String gridName;
+
+    private String puzzle;
+    private Grid grid;
+
+    @Setup
+    public void setup() {
+        puzzle = Corpus.bundled(gridName);
+        grid = new Grid();
+        grid.initGrid(puzzle);
+    }
+
+    @Benchmark
+    public Grid load() {
+        grid.initGrid(puzzle);
+        return grid;
+    }
+
+    @Benchmark
+    public Grid ruleOne() {
+        grid.initGrid(puzzle);
+        grid.ruleOne();
+        return grid;
+    }
+
+    @Benchmark
+    public Grid ruleTwo() {
+        grid.initGrid(puzzle);
+        grid.ruleOne();
+        grid.ruleTwo();
+        return grid;
+    }
+
+    @Benchmark
+    public Grid ruleThree() {
+        grid.initGrid(puzzle);
+        grid.ruleThree();
+        return grid;
+    }
+
+    @Benchmark
+    public LogicResult solveLogically() {
+        grid.initGrid(puzzle);
+        return grid.solveLogically();
+    }
+
+    @Benchmark
+    public boolean isCorrect() {
+        return grid.isCorrect();
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * This file represents the benchmarks of the complete solvers.
+ */
+package sudoku;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to solve each bundled grid with each solver. The grid is reused and
+ * reloaded before each solve.
+ *
+ * @author arthurmanoha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({"grid1", "grid2", "grid3", "grid4", "grid5", "grid6", "grid7"})
+    public String gridName;
+
+    private String puzzle;
+    private Grid grid;
+
+    @Setup
+    public void setup() {
+        puzzle = Corpus.bundled(gridName);
+        grid = new Grid();
+        // The backtracking solver reports on the standard output.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public boolean backtrack() {
+        grid.initGrid(puzzle);
+        return grid.solveWithBacktrack();
+    }
+
+    @Benchmark
+    public boolean propagation() {
+        grid.initGrid(puzzle);
+        return grid.solveWithPropagation();
+    }
+
+    @Benchmark
+    public boolean dancingLinks() {
+        grid.initGrid(puzzle);
+        return grid.solveWithDancingLinks();
+    }
+}
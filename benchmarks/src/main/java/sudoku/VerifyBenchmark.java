@@ -0,0 +1,76 @@
+/**
+ * This file represents the benchmark of the grid verification.
+ */
+package sudoku;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to verify one solved grid: Grid.isCorrect() on each grid, against a
+ * BatchVerifier with its scalar and its vector code.
+ *
+ * @author arthurmanoha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class VerifyBenchmark {
+
+    private static final int NB_GRIDS = 1024;
+
+    private Grid[] grids;
+    private BatchVerifier scalar;
+    private BatchVerifier vector;
+
+    @Setup
+    public void setup() {
+        String[] puzzles = Corpus.generate(NB_GRIDS, 42);
+        grids = new Grid[NB_GRIDS];
+        scalar = new BatchVerifier(9, NB_GRIDS, false);
+        vector = new BatchVerifier(9, NB_GRIDS, true);
+        for (int i = 0; i < NB_GRIDS; i++) {
+            grids[i] = new Grid(puzzles[i]);
+            grids[i].solveWithPropagation();
+            scalar.add(grids[i]);
+            vector.add(grids[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NB_GRIDS)
+    public int isCorrect() {
+        int nbCorrect = 0;
+        for (Grid grid : grids) {
+            if (grid.isCorrect()) {
+                nbCorrect++;
+            }
+        }
+        return nbCorrect;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NB_GRIDS)
+    public int batchScalar() {
+        return scalar.verify();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NB_GRIDS)
+    public int batchVector() {
+        return vector.verify();
+    }
+}
@@ -0,0 +1,364 @@
+/**
+ * This file represents the techniques applied when the simple rules stall.
+ */
+package sudoku;
+
+/**
+ * Remove candidates with the techniques beyond the singles: pointing,
+ * box-line reduction, naked and hidden pairs and triples, X-Wing and
+ * Swordfish. Every technique works on the candidate bitmasks; the position
+ * of a digit in a house, or in the lines of a fish, is a bitmask too (bit i
+ * for the i-th square of the house).
+ *
+ * The candidates removed go through Propagator.eliminate(), so that their
+ * consequences are found by the simple rules on the next round. Candidates
+ * not yet updated after a placement are a superset of the true ones, which
+ * keeps every technique sound.
+ *
+ * @author arthurmanoha
+ */
+class AdvancedRules {
+
+    // The techniques, in the order they are tried.
+    private static final Technique[] TECHNIQUES = {
+        Technique.POINTING, Technique.BOX_LINE,
+        Technique.NAKED_PAIR, Technique.HIDDEN_PAIR,
+        Technique.NAKED_TRIPLE, Technique.HIDDEN_TRIPLE,
+        Technique.X_WING, Technique.SWORDFISH
+    };
+
+    private final int size;
+    private final Candidates candidates;
+    private final Propagator propagator;
+
+    // The items that may be part of a subset or fish (squares, digits or
+    // lines), with their mask (candidates or positions).
+    private final int[] members;
+    private final int[] memberMasks;
+    private int nbMembers;
+
+    // The items of the subset or fish being built.
+    private final int[] chosen = new int[3];
+
+    AdvancedRules(Candidates candidates, Propagator propagator) {
+        this.size = candidates.getSize();
+        this.candidates = candidates;
+        this.propagator = propagator;
+        this.members = new int[size];
+        this.memberMasks = new int[size];
+    }
+
+    /**
+     * Try the techniques from the simplest, until one of them removes a
+     * candidate.
+     *
+     * @return false when the grid has no solution left.
+     */
+    boolean apply() {
+        for (Technique technique : TECHNIQUES) {
+            if (!apply(technique)) {
+                return false;
+            }
+            if (propagator.hasWork()) {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply one technique to the whole grid.
+     *
+     * @return false when the grid has no solution left.
+     */
+    boolean apply(Technique technique) {
+        switch (technique) {
+            case POINTING:
+                return lockedCandidates(2 * size, 3 * size, technique);
+            case BOX_LINE:
+                return lockedCandidates(0, 2 * size, technique);
+            case NAKED_PAIR:
+                return nakedSubsets(2, technique);
+            case NAKED_TRIPLE:
+                return nakedSubsets(3, technique);
+            case HIDDEN_PAIR:
+                return hiddenSubsets(2, technique);
+            case HIDDEN_TRIPLE:
+                return hiddenSubsets(3, technique);
+            case X_WING:
+                return fish(2, technique);
+            case SWORDFISH:
+                return fish(3, technique);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Pointing (from the blocks) and box-line reduction (from the lines and
+     * columns): when the places of a digit in a house all lie in one crossing
+     * house, the digit is removed from the rest of the crossing house.
+     *
+     * @param firstHouse the first house examined
+     * @param lastHouse after the last house examined
+     */
+    private boolean lockedCandidates(int firstHouse, int lastHouse, Technique technique) {
+        boolean fromBlock = firstHouse == 2 * size;
+        for (int house = firstHouse; house < lastHouse; house++) {
+            int missing = candidates.getAllDigits() & ~candidates.getUsedInHouse(house);
+            for (; missing != 0; missing &= missing - 1) {
+                int bit = missing & -missing;
+                int lines = 0;
+                int cols = 0;
+                int blocks = 0;
+                for (int i = 0; i < size; i++) {
+                    int cell = candidates.getHouseCell(house, i);
+                    if ((candidates.getMask(cell) & bit) != 0) {
+                        lines |= 1 << candidates.getLine(cell);
+                        cols |= 1 << candidates.getCol(cell);
+                        blocks |= 1 << candidates.getBlock(cell);
+                    }
+                }
+                if (fromBlock) {
+                    if (Integer.bitCount(lines) == 1
+                            && !removeOutside(Integer.numberOfTrailingZeros(lines), house, bit, technique)) {
+                        return false;
+                    }
+                    if (Integer.bitCount(cols) == 1
+                            && !removeOutside(size + Integer.numberOfTrailingZeros(cols), house, bit, technique)) {
+                        return false;
+                    }
+                } else if (Integer.bitCount(blocks) == 1
+                        && !removeOutside(2 * size + Integer.numberOfTrailingZeros(blocks), house, bit, technique)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove digits from the squares of a house that are not in another
+     * house.
+     */
+    private boolean removeOutside(int house, int keptHouse, int digits, Technique technique) {
+        for (int i = 0; i < size; i++) {
+            int cell = candidates.getHouseCell(house, i);
+            if (!isInHouse(cell, keptHouse) && !propagator.eliminate(cell, digits, technique)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isInHouse(int cell, int house) {
+        if (house < size) {
+            return candidates.getLine(cell) == house;
+        } else if (house < 2 * size) {
+            return candidates.getCol(cell) == house - size;
+        } else {
+            return candidates.getBlock(cell) == house - 2 * size;
+        }
+    }
+
+    /**
+     * Naked pairs or triples: when 'order' squares of a house have only
+     * 'order' candidates between them, these digits are removed from the
+     * other squares of the house.
+     */
+    private boolean nakedSubsets(int order, Technique technique) {
+        for (int house = 0; house < candidates.getNbHouses(); house++) {
+            nbMembers = 0;
+            for (int i = 0; i < size; i++) {
+                int cell = candidates.getHouseCell(house, i);
+                int count = candidates.count(cell);
+                if (count >= 2 && count <= order) {
+                    members[nbMembers] = i;
+                    memberMasks[nbMembers] = candidates.getMask(cell);
+                    nbMembers++;
+                }
+            }
+            if (nbMembers >= order && !nakedSubsets(house, order, 0, 0, 0, 0, technique)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Build the subsets of members, one member at a time.
+     *
+     * @param from the first member that may still be chosen
+     * @param depth the number of members chosen so far
+     * @param digits the candidates of the chosen squares
+     * @param squares the positions of the chosen squares in the house
+     */
+    private boolean nakedSubsets(int house, int order, int from, int depth,
+            int digits, int squares, Technique technique) {
+        if (depth == order) {
+            if (Integer.bitCount(digits) != order) {
+                return true;
+            }
+            for (int i = 0; i < size; i++) {
+                if ((squares & (1 << i)) == 0
+                        && !propagator.eliminate(candidates.getHouseCell(house, i), digits, technique)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int m = from; m < nbMembers; m++) {
+            int union = digits | memberMasks[m];
+            if (Integer.bitCount(union) <= order
+                    && !nakedSubsets(house, order, m + 1, depth + 1, union, squares | (1 << members[m]), technique)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hidden pairs or triples: when 'order' digits of a house may only go in
+     * the same 'order' squares, the other candidates of these squares are
+     * removed.
+     */
+    private boolean hiddenSubsets(int order, Technique technique) {
+        for (int house = 0; house < candidates.getNbHouses(); house++) {
+            nbMembers = 0;
+            int missing = candidates.getAllDigits() & ~candidates.getUsedInHouse(house);
+            for (; missing != 0; missing &= missing - 1) {
+                int bit = missing & -missing;
+                int positions = 0;
+                for (int i = 0; i < size; i++) {
+                    if ((candidates.getMask(candidates.getHouseCell(house, i)) & bit) != 0) {
+                        positions |= 1 << i;
+                    }
+                }
+                int count = Integer.bitCount(positions);
+                if (count >= 2 && count <= order) {
+                    members[nbMembers] = bit;
+                    memberMasks[nbMembers] = positions;
+                    nbMembers++;
+                }
+            }
+            if (nbMembers >= order && !hiddenSubsets(house, order, 0, 0, 0, 0, technique)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Build the subsets of digits, one digit at a time.
+     *
+     * @param digits the chosen digits
+     * @param squares the positions where the chosen digits may go
+     */
+    private boolean hiddenSubsets(int house, int order, int from, int depth,
+            int digits, int squares, Technique technique) {
+        if (depth == order) {
+            if (Integer.bitCount(squares) != order) {
+                return true;
+            }
+            int others = candidates.getAllDigits() & ~digits;
+            for (int bits = squares; bits != 0; bits &= bits - 1) {
+                int cell = candidates.getHouseCell(house, Integer.numberOfTrailingZeros(bits));
+                if (!propagator.eliminate(cell, others, technique)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int m = from; m < nbMembers; m++) {
+            int union = squares | memberMasks[m];
+            if (Integer.bitCount(union) <= order
+                    && !hiddenSubsets(house, order, m + 1, depth + 1, digits | members[m], union, technique)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * X-Wing (order 2) and Swordfish (order 3): when a digit may only go in
+     * the same 'order' columns of 'order' lines, it is removed from the other
+     * lines of these columns; and the same with lines and columns swapped.
+     */
+    private boolean fish(int order, Technique technique) {
+        for (int digit = 1; digit <= size; digit++) {
+            int bit = 1 << (digit - 1);
+            for (int baseHouses = 0; baseHouses <= size; baseHouses += size) {
+                nbMembers = 0;
+                for (int base = 0; base < size; base++) {
+                    int house = baseHouses + base;
+                    if ((candidates.getUsedInHouse(house) & bit) != 0) {
+                        continue;
+                    }
+                    int positions = 0;
+                    for (int i = 0; i < size; i++) {
+                        if ((candidates.getMask(candidates.getHouseCell(house, i)) & bit) != 0) {
+                            positions |= 1 << i;
+                        }
+                    }
+                    int count = Integer.bitCount(positions);
+                    if (count >= 2 && count <= order) {
+                        members[nbMembers] = base;
+                        memberMasks[nbMembers] = positions;
+                        nbMembers++;
+                    }
+                }
+                if (nbMembers >= order && !fish(baseHouses, order, bit, 0, 0, 0, technique)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Build the fish, one base line (or column) at a time.
+     *
+     * @param baseHouses 0 when the bases are lines, size for columns
+     * @param covers the columns (or lines) where the digit may go in the
+     * chosen bases
+     */
+    private boolean fish(int baseHouses, int order, int bit, int from, int depth,
+            int covers, Technique technique) {
+        if (depth == order) {
+            if (Integer.bitCount(covers) != order) {
+                return true;
+            }
+            int coverHouses = size - baseHouses;
+            for (int bits = covers; bits != 0; bits &= bits - 1) {
+                int house = coverHouses + Integer.numberOfTrailingZeros(bits);
+                for (int i = 0; i < size; i++) {
+                    // The i-th square of a cover is in base i.
+                    if (!isChosen(i, order)
+                            && !propagator.eliminate(candidates.getHouseCell(house, i), bit, technique)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        for (int m = from; m < nbMembers; m++) {
+            int union = covers | memberMasks[m];
+            if (Integer.bitCount(union) <= order) {
+                chosen[depth] = members[m];
+                if (!fish(baseHouses, order, bit, m + 1, depth + 1, union, technique)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isChosen(int item, int nbChosen) {
+        for (int k = 0; k < nbChosen; k++) {
+            if (chosen[k] == item) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
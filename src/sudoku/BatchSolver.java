@@ -0,0 +1,360 @@
+/**
+ * This file represents a solver for large files of puzzles.
+ */
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solve a stream of puzzles, one puzzle per line in any format read by
+ * Grid.initGrid(), and write one solution per line, in the same order. Lines
+ * are read and written by chunks, and only a few chunks are in memory at any
+ * time, so the memory used does not depend on the size of the input.
+ *
+ * With several threads, the chunks are solved by a fixed pool of workers; each
+ * worker reuses its own Grid for every puzzle of the same size.
+ *
+ * A puzzle that cannot be read or has no solution is counted as failed, and
+ * its line is written back unchanged.
+ *
+ * @author arthurmanoha
+ */
+public class BatchSolver {
+
+    // Number of puzzles handed to a worker at once.
+    private static final int CHUNK_SIZE = 1024;
+
+    private final int nbThreads;
+
+    // One grid per thread, reused for every puzzle of the same size.
+    private final ThreadLocal<Grid> grids = ThreadLocal.withInitial(Grid::new);
+
+    // Chunks already written, ready to be filled again.
+    private final ArrayDeque<Chunk> freeChunks = new ArrayDeque<>();
+
+    // Receives the metrics of every puzzle; null when they are not collected.
+    private volatile SolverStats stats;
+
+    // Answers the puzzles seen before; null when there is no cache.
+    private volatile SolutionCache cache;
+
+    private long nbPuzzles;
+    private long nbFailed;
+    private long elapsedNanos;
+
+    public BatchSolver() {
+        this(1);
+    }
+
+    /**
+     * @param nbThreads the number of worker threads; 1 solves everything in
+     * the calling thread.
+     */
+    public BatchSolver(int nbThreads) {
+        this.nbThreads = Math.max(1, nbThreads);
+    }
+
+    /**
+     * Collect the metrics of every puzzle solved from now on.
+     *
+     * @param stats null stops the collection.
+     */
+    public void setStats(SolverStats stats) {
+        this.stats = stats;
+    }
+
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Look each puzzle up in a cache before solving it, and add it to the
+     * cache once solved.
+     *
+     * @param cache null solves every puzzle.
+     */
+    public void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+
+    public SolutionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Solve a grid with Grid.solve(), through the cache if any.
+     */
+    private boolean solve(Grid grid) {
+        SolutionCache c = cache;
+        return c == null ? grid.solve() : c.solve(grid);
+    }
+
+    /**
+     * Solve every puzzle of the input. Empty lines are skipped.
+     *
+     * @param in the puzzles, one per line
+     * @param out where the solutions are written, one per line
+     * @throws IOException when reading or writing fails.
+     */
+    public void solveAll(BufferedReader in, OutputStream out) throws IOException {
+        solveAll(chunk -> chunk.read(in), out);
+    }
+
+    /**
+     * Solve every puzzle of a packed file; each puzzle is decoded straight
+     * into the grid of the worker.
+     *
+     * @param in the puzzles
+     * @param out where the solutions are written, one per line
+     * @throws IOException when writing fails.
+     */
+    public void solveAll(PackedReader in, OutputStream out) throws IOException {
+        ChunkSource source = new ChunkSource() {
+            private long next = 0;
+
+            @Override
+            public boolean read(Chunk chunk) {
+                boolean found = chunk.read(in, next);
+                next += chunk.nbLines;
+                return found;
+            }
+        };
+        solveAll(source, out);
+    }
+
+    private void solveAll(ChunkSource in, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        if (nbThreads == 1) {
+            Chunk chunk = new Chunk();
+            while (in.read(chunk)) {
+                chunk.solve();
+                write(chunk, out);
+            }
+        } else {
+            solveInParallel(in, out);
+        }
+        out.flush();
+        elapsedNanos += System.nanoTime() - start;
+    }
+
+    private void solveInParallel(ChunkSource in, OutputStream out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(nbThreads);
+        // The chunks being solved, in input order.
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        try {
+            Chunk chunk = nextFreeChunk();
+            while (in.read(chunk)) {
+                Chunk toSolve = chunk;
+                pending.add(pool.submit(() -> {
+                    toSolve.solve();
+                    return toSolve;
+                }));
+                if (pending.size() >= 2 * nbThreads) {
+                    write(pending.poll().get(), out);
+                }
+                chunk = nextFreeChunk();
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll().get(), out);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Chunk nextFreeChunk() {
+        Chunk chunk = freeChunks.poll();
+        return chunk == null ? new Chunk() : chunk;
+    }
+
+    private void write(Chunk chunk, OutputStream out) throws IOException {
+        chunk.output.writeTo(out);
+        nbPuzzles += chunk.nbLines;
+        nbFailed += chunk.nbFailed;
+        freeChunks.add(chunk);
+    }
+
+    public long getNbPuzzles() {
+        return nbPuzzles;
+    }
+
+    public long getNbFailed() {
+        return nbFailed;
+    }
+
+    public long getNbSolved() {
+        return nbPuzzles - nbFailed;
+    }
+
+    /**
+     * @return the number of puzzles handled per second, reading and writing
+     * included.
+     */
+    public double getPuzzlesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nbPuzzles * 1e9 / elapsedNanos;
+    }
+
+    public String getReport() {
+        return nbPuzzles + " puzzles, " + getNbSolved() + " solved, "
+                + nbFailed + " failed or unsolvable, "
+                + String.format("%.0f", getPuzzlesPerSecond()) + " puzzles/sec.";
+    }
+
+    /**
+     * Find the grid of the current thread, replaced when the puzzle has
+     * another size.
+     */
+    private Grid gridFor(String text) {
+        return gridFor(Grid.sizeOf(text));
+    }
+
+    private Grid gridFor(int size) {
+        Grid grid = grids.get();
+        if (grid.getSize() != size) {
+            grid = new Grid(size);
+            grids.set(grid);
+        }
+        grid.setStats(stats);
+        return grid;
+    }
+
+    /**
+     * Fills the chunks with the next puzzles of the input.
+     */
+    private interface ChunkSource {
+
+        /**
+         * @return false when the input had no puzzle left.
+         */
+        boolean read(Chunk chunk) throws IOException;
+    }
+
+    /**
+     * A group of consecutive input lines and their solutions.
+     */
+    private class Chunk {
+
+        private final String[] lines = new String[CHUNK_SIZE];
+        private int nbLines;
+
+        // The packed file and the index of the first puzzle, instead of lines.
+        private PackedReader packed;
+        private long first;
+        // The values of the packed puzzle being solved.
+        private int[] digits;
+        private int nbFailed;
+        // The solutions, as ASCII lines; see GridSerializer.
+        private final GridSerializer output = new GridSerializer(CHUNK_SIZE * 82);
+
+        /**
+         * Read the next lines of the input.
+         *
+         * @return false when the input had no puzzle left.
+         */
+        boolean read(BufferedReader in) throws IOException {
+            packed = null;
+            nbLines = 0;
+            String text;
+            while (nbLines < CHUNK_SIZE && (text = in.readLine()) != null) {
+                text = text.trim();
+                if (!text.isEmpty()) {
+                    lines[nbLines] = text;
+                    nbLines++;
+                }
+            }
+            return nbLines > 0;
+        }
+
+        /**
+         * Take the next puzzles of a packed file; they are decoded when
+         * solved.
+         *
+         * @return false when the file had no puzzle left.
+         */
+        boolean read(PackedReader in, long first) {
+            this.packed = in;
+            this.first = first;
+            nbLines = (int) Math.min(CHUNK_SIZE, in.getCount() - first);
+            return nbLines > 0;
+        }
+
+        /**
+         * Solve all the lines of the chunk with the grid of this thread.
+         */
+        void solve() {
+            output.reset();
+            nbFailed = 0;
+            for (int i = 0; i < nbLines; i++) {
+                if (packed != null) {
+                    solvePacked(first + i);
+                    output.newLine();
+                    continue;
+                }
+                Grid grid = solve(lines[i]);
+                if (grid != null) {
+                    output.appendLine(grid);
+                } else {
+                    nbFailed++;
+                    output.append(lines[i]);
+                }
+                output.newLine();
+            }
+        }
+
+        /**
+         * Solve one puzzle in the grid of this thread.
+         *
+         * @return the solved grid, or null when the puzzle could not be read
+         * or has no solution.
+         */
+        private Grid solve(String text) {
+            Grid grid;
+            try {
+                grid = gridFor(text);
+                grid.initGrid(text);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            return BatchSolver.this.solve(grid) ? grid : null;
+        }
+
+        /**
+         * Solve one puzzle of the packed file in the grid of this thread. A
+         * failed puzzle is written as it was read, from its digits: the
+         * solver may leave the digits it deduced in the grid.
+         */
+        private void solvePacked(long index) {
+            Grid grid = gridFor(packed.getSize());
+            if (digits == null || digits.length != packed.getSize() * packed.getSize()) {
+                digits = new int[packed.getSize() * packed.getSize()];
+            }
+            try {
+                packed.readDigits(index, digits);
+                grid.initGrid(digits);
+            } catch (IllegalArgumentException e) {
+                nbFailed++;
+                output.append("invalid puzzle ").append(index);
+                return;
+            }
+            if (BatchSolver.this.solve(grid)) {
+                output.appendLine(grid);
+            } else {
+                nbFailed++;
+                output.appendLine(digits);
+            }
+        }
+    }
+}
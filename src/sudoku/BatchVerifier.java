@@ -0,0 +1,269 @@
+/**
+ * This file represents the verification of many grids at once.
+ */
+package sudoku;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Check many grids of the same size at once, with the same rules as
+ * Grid.isCorrect() (no digit twice in a line, column or block, empty squares
+ * allowed) and Grid.isSolved() (correct and full).
+ *
+ * The grids are stored square by square: the values of square c in all the
+ * grids are next to each other, so one house of many grids is checked with a
+ * few vector operations. Each house ORs the bit of each digit into a mask;
+ * a digit whose bit is already in the mask is a repeat, and a house whose
+ * mask lacks a bit is not full.
+ *
+ * The vector code uses the incubating Vector API, and needs the JVM option
+ * "--add-modules jdk.incubator.vector"; without it, or with
+ * -Dsudoku.vector=false, the same checks run one grid at a time.
+ *
+ * @author arthurmanoha
+ */
+public class BatchVerifier {
+
+    // Lanes of the widest vectors of ints; the capacity is a multiple of it,
+    // so the vector code never needs a scalar tail.
+    private static final int MAX_LANES = 16;
+
+    // The vector kernel when the Vector API is available, the scalar one
+    // otherwise.
+    private static final Kernel DEFAULT_KERNEL = loadKernel();
+
+    private final int size;
+    private final int capacity;
+    private final Kernel kernel;
+
+    // Value of square c in grid g at c * capacity + g; 0 for empty.
+    private final int[] values;
+    private int count;
+
+    // Squares of each house, as in Candidates: lines, columns, then blocks.
+    private final int[] houseCells;
+
+    // Results of the last verify(), per grid: the digits repeated in some
+    // house, and the digits missing from some house.
+    private final int[] repeated;
+    private final int[] missing;
+
+    /**
+     * @param size the size of the grids
+     * @param capacity the number of grids checked at once
+     */
+    public BatchVerifier(int size, int capacity) {
+        this(size, capacity, DEFAULT_KERNEL);
+    }
+
+    /**
+     * @param vectorized false forces the scalar code, e.g. to compare both.
+     */
+    BatchVerifier(int size, int capacity, boolean vectorized) {
+        this(size, capacity, vectorized ? DEFAULT_KERNEL : new ScalarKernel());
+    }
+
+    private BatchVerifier(int size, int capacity, Kernel kernel) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        Candidates layout = new Candidates(size);
+        this.size = size;
+        this.capacity = (capacity + MAX_LANES - 1) / MAX_LANES * MAX_LANES;
+        this.kernel = kernel;
+        this.values = new int[size * size * this.capacity];
+        this.houseCells = new int[layout.getNbHouses() * size];
+        for (int house = 0; house < layout.getNbHouses(); house++) {
+            for (int i = 0; i < size; i++) {
+                houseCells[house * size + i] = layout.getHouseCell(house, i);
+            }
+        }
+        this.repeated = new int[this.capacity];
+        this.missing = new int[this.capacity];
+    }
+
+    private static Kernel loadKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("sudoku.vector", "true"))) {
+            return new ScalarKernel();
+        }
+        try {
+            return (Kernel) Class.forName("sudoku.VectorKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            Logger.getLogger(BatchVerifier.class.getName()).log(Level.FINE,
+                    "Vector API not available, using scalar verification", e);
+            return new ScalarKernel();
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of grids checked at once, rounded up to a whole
+     * number of vectors.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return true when the grids are checked with the Vector API.
+     */
+    public boolean isVectorized() {
+        return !(kernel instanceof ScalarKernel);
+    }
+
+    /**
+     * Remove all the grids, keeping the memory.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Add the digits of a grid.
+     *
+     * @return the index of the grid in the batch.
+     * @throws IllegalArgumentException when the grid has another size.
+     * @throws IllegalStateException when the batch is full.
+     */
+    public int add(Grid grid) {
+        if (grid.getSize() != size) {
+            throw new IllegalArgumentException("Expected a grid of size " + size + ", found " + grid.getSize());
+        }
+        checkRoom();
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                values[(line * size + col) * capacity + count] = grid.getDigit(line, col);
+            }
+        }
+        return count++;
+    }
+
+    /**
+     * Add a grid given as one value per square, line after line.
+     *
+     * @return the index of the grid in the batch.
+     * @throws IllegalArgumentException when a value is not 0 to size, or the
+     * number of values is wrong.
+     * @throws IllegalStateException when the batch is full.
+     */
+    public int add(int[] digits) {
+        if (digits.length != size * size) {
+            throw new IllegalArgumentException("Expected " + size * size + " squares, found " + digits.length);
+        }
+        checkRoom();
+        for (int cell = 0; cell < digits.length; cell++) {
+            int digit = digits[cell];
+            if (digit < 0 || digit > size) {
+                throw new IllegalArgumentException("Invalid value " + digit + " at position " + cell);
+            }
+            values[cell * capacity + count] = digit;
+        }
+        return count++;
+    }
+
+    private void checkRoom() {
+        if (count == capacity) {
+            throw new IllegalStateException("Batch full: " + capacity + " grids");
+        }
+    }
+
+    /**
+     * Check all the grids of the batch.
+     *
+     * @return the number of grids solved, i.e. full and correct.
+     */
+    public int verify() {
+        // Clear the squares after the last grid, so that they are checked
+        // as empty grids.
+        int end = (count + MAX_LANES - 1) / MAX_LANES * MAX_LANES;
+        for (int cell = 0; cell < size * size && count < end; cell++) {
+            Arrays.fill(values, cell * capacity + count, cell * capacity + end, 0);
+        }
+        kernel.verify(values, capacity, end, houseCells, size, repeated, missing);
+        int nbSolved = 0;
+        for (int g = 0; g < count; g++) {
+            if ((repeated[g] | missing[g]) == 0) {
+                nbSolved++;
+            }
+        }
+        return nbSolved;
+    }
+
+    /**
+     * @return the result of Grid.isCorrect() for a grid of the last
+     * verify().
+     */
+    public boolean isCorrect(int index) {
+        checkIndex(index);
+        return repeated[index] == 0;
+    }
+
+    /**
+     * @return true when a grid of the last verify() is full and correct.
+     */
+    public boolean isSolved(int index) {
+        checkIndex(index);
+        return (repeated[index] | missing[index]) == 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Grid " + index + " of " + count);
+        }
+    }
+
+    /**
+     * The checks of the houses, for a range of grids.
+     */
+    interface Kernel {
+
+        /**
+         * @param values the squares, c * stride + g for square c of grid g
+         * @param stride the distance between two squares of a grid
+         * @param end the number of grids checked, a multiple of 16
+         * @param houseCells the squares of each house
+         * @param size the size of the grids
+         * @param repeated receives, per grid, the digits repeated in a house
+         * @param missing receives, per grid, the digits missing from a house
+         */
+        void verify(int[] values, int stride, int end, int[] houseCells, int size,
+                int[] repeated, int[] missing);
+    }
+
+    /**
+     * The checks of one grid after another.
+     */
+    static class ScalarKernel implements Kernel {
+
+        @Override
+        public void verify(int[] values, int stride, int end, int[] houseCells, int size,
+                int[] repeated, int[] missing) {
+            int allDigits = (1 << size) - 1;
+            for (int g = 0; g < end; g++) {
+                int rep = 0;
+                int miss = 0;
+                for (int house = 0; house < 3 * size; house++) {
+                    int seen = 0;
+                    for (int i = 0; i < size; i++) {
+                        // 0 for an empty square.
+                        int bit = (1 << values[houseCells[house * size + i] * stride + g]) >>> 1;
+                        rep |= seen & bit;
+                        seen |= bit;
+                    }
+                    miss |= allDigits & ~seen;
+                }
+                repeated[g] = rep;
+                missing[g] = miss;
+            }
+        }
+    }
+}
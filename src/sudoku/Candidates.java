@@ -0,0 +1,387 @@
+/**
+ * This file represents the candidates of a grid, stored as flat bitmasks.
+ */
+package sudoku;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Candidate store of a grid: one int per square, plus one "digit used" mask
+ * per line, column and block. Bit k of a mask stands for the digit k+1.
+ *
+ * Squares are indexed by line * size + col. A square that holds a digit has
+ * no candidate left.
+ *
+ * @author arthurmanoha
+ */
+class Candidates {
+
+    private final int size;
+    private final int blockSize;
+
+    // Mask with one bit set for each digit of the grid.
+    private final int allDigits;
+
+    // The candidates still allowed in each square.
+    private final int[] cells;
+
+    // Digits already placed in each line, column and block.
+    private final int[] lineUsed;
+    private final int[] colUsed;
+    private final int[] blockUsed;
+
+    // The tables below depend on the size only; they are built once per size
+    // and shared by every store of that size, see Layout.
+
+    // Line, column and block index of each square, to avoid divisions.
+    private final int[] lineOf;
+    private final int[] colOf;
+    private final int[] blockOf;
+
+    // The squares of each house: all lines, then all columns, then all blocks;
+    // house h uses the entries h * size to h * size + size - 1.
+    private final int[] houseCells;
+
+    // The squares that share a line, column or block with each square;
+    // square c uses the entries c * nbPeers to c * nbPeers + nbPeers - 1.
+    private final int nbPeers;
+    private final int[] peers;
+
+    private static final Map<Integer, Layout> LAYOUTS = new ConcurrentHashMap<>();
+
+    Candidates(int size) {
+        Layout layout = LAYOUTS.computeIfAbsent(size, Layout::new);
+        this.size = size;
+        this.blockSize = layout.blockSize;
+        this.allDigits = (1 << size) - 1;
+        this.cells = new int[size * size];
+        this.lineUsed = new int[size];
+        this.colUsed = new int[size];
+        this.blockUsed = new int[size];
+        this.lineOf = layout.lineOf;
+        this.colOf = layout.colOf;
+        this.blockOf = layout.blockOf;
+        this.houseCells = layout.houseCells;
+        this.nbPeers = layout.nbPeers;
+        this.peers = layout.peers;
+        reset();
+    }
+
+    /**
+     * Allow every digit in every square, and mark all digits as unused.
+     */
+    final void reset() {
+        Arrays.fill(cells, allDigits);
+        Arrays.fill(lineUsed, 0);
+        Arrays.fill(colUsed, 0);
+        Arrays.fill(blockUsed, 0);
+    }
+
+    /**
+     * @return the number of ints needed to save the whole candidate state.
+     */
+    int getStateLength() {
+        return cells.length + 3 * size;
+    }
+
+    /**
+     * Copy the whole candidate state into an array.
+     *
+     * @param dest the destination array
+     * @param offset the position of the state in 'dest'
+     */
+    void save(int[] dest, int offset) {
+        System.arraycopy(cells, 0, dest, offset, cells.length);
+        offset += cells.length;
+        System.arraycopy(lineUsed, 0, dest, offset, size);
+        System.arraycopy(colUsed, 0, dest, offset + size, size);
+        System.arraycopy(blockUsed, 0, dest, offset + 2 * size, size);
+    }
+
+    /**
+     * Bring back a candidate state copied with save().
+     *
+     * @param src the array that holds the state
+     * @param offset the position of the state in 'src'
+     */
+    void restore(int[] src, int offset) {
+        System.arraycopy(src, offset, cells, 0, cells.length);
+        offset += cells.length;
+        System.arraycopy(src, offset, lineUsed, 0, size);
+        System.arraycopy(src, offset + size, colUsed, 0, size);
+        System.arraycopy(src, offset + 2 * size, blockUsed, 0, size);
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    int getNbHouses() {
+        return 3 * size;
+    }
+
+    /**
+     * Find the square at a given position in a house.
+     *
+     * @param house the house index (lines, then columns, then blocks)
+     * @param i the position in the house, from 0 to size-1
+     * @return the index of the square
+     */
+    int getHouseCell(int house, int i) {
+        return houseCells[house * size + i];
+    }
+
+    int getNbPeers() {
+        return nbPeers;
+    }
+
+    /**
+     * Find one of the squares that share a line, column or block with a
+     * square.
+     *
+     * @param cell the square
+     * @param i the peer number, from 0 to getNbPeers()-1
+     * @return the index of the peer
+     */
+    int getPeer(int cell, int i) {
+        return peers[cell * nbPeers + i];
+    }
+
+    int getLine(int cell) {
+        return lineOf[cell];
+    }
+
+    int getCol(int cell) {
+        return colOf[cell];
+    }
+
+    int getBlock(int cell) {
+        return blockOf[cell];
+    }
+
+    int getAllDigits() {
+        return allDigits;
+    }
+
+    int getMask(int cell) {
+        return cells[cell];
+    }
+
+    boolean isCandidate(int cell, int digit) {
+        return (cells[cell] & (1 << (digit - 1))) != 0;
+    }
+
+    /**
+     * @return the number of candidates still allowed in the square.
+     */
+    int count(int cell) {
+        return Integer.bitCount(cells[cell]);
+    }
+
+    /**
+     * @return the smallest candidate of the square, or 0 when there is none.
+     */
+    int firstCandidate(int cell) {
+        int mask = cells[cell];
+        return mask == 0 ? 0 : Integer.numberOfTrailingZeros(mask) + 1;
+    }
+
+    /**
+     * The digits already placed in the line, column and block of a square.
+     */
+    int getUsedAround(int cell) {
+        return lineUsed[lineOf[cell]] | colUsed[colOf[cell]] | blockUsed[blockOf[cell]];
+    }
+
+    /**
+     * The digits already placed in a house.
+     */
+    int getUsedInHouse(int house) {
+        if (house < size) {
+            return lineUsed[house];
+        } else if (house < 2 * size) {
+            return colUsed[house - size];
+        } else {
+            return blockUsed[house - 2 * size];
+        }
+    }
+
+    /**
+     * Tell if a digit may go in a square without being repeated in the line,
+     * column or block.
+     */
+    boolean canPlace(int cell, int digit) {
+        return (getUsedAround(cell) & (1 << (digit - 1))) == 0;
+    }
+
+    /**
+     * Put a digit in a square: the square has no candidate left, and the digit
+     * is marked as used in the line, column and block.
+     */
+    void place(int cell, int digit) {
+        int bit = 1 << (digit - 1);
+        cells[cell] = 0;
+        lineUsed[lineOf[cell]] |= bit;
+        colUsed[colOf[cell]] |= bit;
+        blockUsed[blockOf[cell]] |= bit;
+    }
+
+    /**
+     * Remove the digit of a square: the digit is no longer used in the line,
+     * column and block, and the square gets back the candidates that its
+     * neighbours still allow. Candidates removed from other squares are not
+     * restored.
+     */
+    void unplace(int cell, int digit) {
+        int bit = ~(1 << (digit - 1));
+        lineUsed[lineOf[cell]] &= bit;
+        colUsed[colOf[cell]] &= bit;
+        blockUsed[blockOf[cell]] &= bit;
+        allowUnused(cell);
+    }
+
+    /**
+     * Give an empty square every digit that its line, column and block do
+     * not use, e.g. after one of its peers was emptied; candidates removed by
+     * the techniques come back too.
+     */
+    void allowUnused(int cell) {
+        cells[cell] = allDigits & ~getUsedAround(cell);
+    }
+
+    /**
+     * Remove a digit from the candidates of a square.
+     *
+     * @return true when the digit was still a candidate.
+     */
+    boolean eliminate(int cell, int digit) {
+        int bit = 1 << (digit - 1);
+        boolean wasCandidate = (cells[cell] & bit) != 0;
+        cells[cell] &= ~bit;
+        return wasCandidate;
+    }
+
+    /**
+     * Remove several digits from the candidates of a square.
+     *
+     * @param digits the mask of the digits to remove
+     * @return the mask of the digits that were candidates.
+     */
+    int remove(int cell, int digits) {
+        int removed = cells[cell] & digits;
+        cells[cell] &= ~digits;
+        return removed;
+    }
+
+    /**
+     * Remove a digit from the candidates of all the peers of a square.
+     *
+     * @param cell the square
+     * @param digit the digit to remove
+     * @param changed receives the peers that had the digit as candidate
+     * @return the number of peers written in 'changed'.
+     */
+    int eliminateFromPeers(int cell, int digit, int[] changed) {
+        int bit = 1 << (digit - 1);
+        int start = cell * nbPeers;
+        int nbChanged = 0;
+        for (int i = start; i < start + nbPeers; i++) {
+            int peer = peers[i];
+            int mask = cells[peer];
+            if ((mask & bit) != 0) {
+                cells[peer] = mask & ~bit;
+                changed[nbChanged] = peer;
+                nbChanged++;
+            }
+        }
+        return nbChanged;
+    }
+
+    /**
+     * Remove from the candidates of a square the digits that are already
+     * placed in its line, column or block.
+     *
+     * @return true when at least one candidate was removed.
+     */
+    boolean restrict(int cell) {
+        int before = cells[cell];
+        cells[cell] = before & ~getUsedAround(cell);
+        return cells[cell] != before;
+    }
+
+    /**
+     * Find the digits that are still missing in a house and have exactly one
+     * square left where they may go.
+     *
+     * @param house the house index (lines, then columns, then blocks)
+     * @return the mask of those digits.
+     */
+    int getHiddenSingles(int house) {
+        int once = 0;
+        int twice = 0;
+        int start = house * size;
+        for (int i = start; i < start + size; i++) {
+            int mask = cells[houseCells[i]];
+            twice |= once & mask;
+            once |= mask;
+        }
+        return once & ~twice & ~getUsedInHouse(house);
+    }
+
+    /**
+     * The tables of the squares and houses of a grid size, never modified
+     * once built.
+     */
+    private static final class Layout {
+
+        private final int blockSize;
+        private final int[] lineOf;
+        private final int[] colOf;
+        private final int[] blockOf;
+        private final int[] houseCells;
+        private final int nbPeers;
+        private final int[] peers;
+
+        Layout(int size) {
+            this.blockSize = (int) Math.sqrt(size);
+            this.lineOf = new int[size * size];
+            this.colOf = new int[size * size];
+            this.blockOf = new int[size * size];
+            this.houseCells = new int[3 * size * size];
+
+            for (int line = 0; line < size; line++) {
+                for (int col = 0; col < size; col++) {
+                    int cell = line * size + col;
+                    int block = (line / blockSize) * blockSize + col / blockSize;
+                    int posInBlock = (line % blockSize) * blockSize + col % blockSize;
+                    lineOf[cell] = line;
+                    colOf[cell] = col;
+                    blockOf[cell] = block;
+                    houseCells[line * size + col] = cell;
+                    houseCells[(size + col) * size + line] = cell;
+                    houseCells[(2 * size + block) * size + posInBlock] = cell;
+                }
+            }
+
+            this.nbPeers = 3 * (size - 1) - 2 * (blockSize - 1);
+            this.peers = new int[size * size * nbPeers];
+            for (int cell = 0; cell < size * size; cell++) {
+                int n = 0;
+                for (int other = 0; other < size * size; other++) {
+                    if (other != cell && (other / size == cell / size
+                            || other % size == cell % size
+                            || blockOf[other] == blockOf[cell])) {
+                        peers[cell * nbPeers + n] = other;
+                        n++;
+                    }
+                }
+            }
+        }
+    }
+}
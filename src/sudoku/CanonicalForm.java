@@ -0,0 +1,299 @@
+/**
+ * This file represents the canonical form of a puzzle.
+ */
+package sudoku;
+
+import java.util.Arrays;
+
+/**
+ * Bring a puzzle to a form shared by its variants: the same puzzle with its
+ * digits relabeled, its bands and stacks reordered, its lines reordered
+ * inside their bands, its columns reordered inside their stacks, or
+ * transposed. The transform that leads to the canonical form is kept, so that
+ * a grid of the canonical form (e.g. a solution) can be mapped back.
+ *
+ * The lines and columns are ordered by keys that do not depend on the
+ * variant: how many digits are given in each line, column, and for each digit,
+ * refined once with the keys of the crossing lines and columns. Ties are kept
+ * in their original order, so two variants of a very regular puzzle may still
+ * get different forms; the mapping back is exact in every case. The
+ * orientation that gives the smaller form is chosen, and the digits are then
+ * relabeled by order of first appearance.
+ *
+ * Computing a form allocates nothing, except for getKey(); an instance is
+ * reused for any number of puzzles of the same size, by one thread.
+ *
+ * @author arthurmanoha
+ */
+public class CanonicalForm {
+
+    // Odd constant used to weight the keys before mixing them.
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final int size;
+    private final int blockSize;
+    private final int nbCells;
+
+    // The transform: canonical line i is line lineOrder[i] of the puzzle,
+    // transposed first when 'transposed' is true; the same for the columns.
+    private boolean transposed;
+    private final int[] lineOrder;
+    private final int[] colOrder;
+    // Label of each digit in the canonical form, and its inverse.
+    private final int[] label;
+    private final int[] original;
+
+    // The canonical form of the last puzzle.
+    private final int[] canonical;
+
+    // Work arrays, for each orientation.
+    private final int[] oriented;
+    private final int[] candidateLines;
+    private final int[] candidateCols;
+    private final int[] candidateLabel;
+    private final int[] candidate;
+    private final int[] lineCount;
+    private final int[] colCount;
+    private final long[] lineKey;
+    private final long[] colKey;
+    private final long[] digitKey;
+    private final long[] groupKey;
+    private final int[] groups;
+
+    public CanonicalForm(int size) {
+        this.size = size;
+        this.blockSize = (int) Math.round(Math.sqrt(size));
+        this.nbCells = size * size;
+        lineOrder = new int[size];
+        colOrder = new int[size];
+        label = new int[size + 1];
+        original = new int[size + 1];
+        canonical = new int[nbCells];
+        oriented = new int[nbCells];
+        candidateLines = new int[size];
+        candidateCols = new int[size];
+        candidateLabel = new int[size + 1];
+        candidate = new int[nbCells];
+        lineCount = new int[size];
+        colCount = new int[size];
+        lineKey = new long[size];
+        colKey = new long[size];
+        digitKey = new long[size + 1];
+        groupKey = new long[blockSize];
+        groups = new int[blockSize];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Find the canonical form of a puzzle, and the transform that leads to it.
+     *
+     * @param digits one value per square, line after line, 0 for an empty
+     * square.
+     */
+    public void compute(int[] digits) {
+        if (digits.length != nbCells) {
+            throw new IllegalArgumentException("Expected " + nbCells + " squares, found " + digits.length);
+        }
+        for (int orientation = 0; orientation < 2; orientation++) {
+            boolean transpose = orientation == 1;
+            for (int line = 0; line < size; line++) {
+                for (int col = 0; col < size; col++) {
+                    oriented[line * size + col] = transpose ? digits[col * size + line] : digits[line * size + col];
+                }
+            }
+            orderOriented();
+            if (orientation == 0 || Arrays.compare(candidate, canonical) < 0) {
+                transposed = transpose;
+                System.arraycopy(candidate, 0, canonical, 0, nbCells);
+                System.arraycopy(candidateLines, 0, lineOrder, 0, size);
+                System.arraycopy(candidateCols, 0, colOrder, 0, size);
+                System.arraycopy(candidateLabel, 0, label, 0, size + 1);
+            }
+        }
+        for (int d = 0; d <= size; d++) {
+            original[label[d]] = d;
+        }
+    }
+
+    /**
+     * @return the canonical form of the last puzzle, as one line of symbols;
+     * see Grid.symbolOf().
+     */
+    public String getKey() {
+        char[] text = new char[nbCells];
+        for (int i = 0; i < nbCells; i++) {
+            text[i] = Grid.symbolOf(canonical[i]);
+        }
+        return new String(text);
+    }
+
+    /**
+     * Apply the transform of the last puzzle to a grid of the same size.
+     *
+     * @param digits e.g. a solution of the last puzzle
+     * @param dest receives the grid in the canonical frame
+     */
+    public void toCanonical(int[] digits, int[] dest) {
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                dest[line * size + col] = label[digits[sourceCell(line, col)]];
+            }
+        }
+    }
+
+    /**
+     * Undo the transform of the last puzzle on a grid of the canonical frame.
+     *
+     * @param canonicalDigits e.g. a solution of the canonical form
+     * @param dest receives the grid in the frame of the last puzzle
+     */
+    public void fromCanonical(int[] canonicalDigits, int[] dest) {
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                dest[sourceCell(line, col)] = original[canonicalDigits[line * size + col]];
+            }
+        }
+    }
+
+    /**
+     * @return the square of the puzzle that goes to (line, col) of the
+     * canonical form.
+     */
+    private int sourceCell(int line, int col) {
+        int sourceLine = lineOrder[line];
+        int sourceCol = colOrder[col];
+        return transposed ? sourceCol * size + sourceLine : sourceLine * size + sourceCol;
+    }
+
+    /**
+     * Order the lines and columns of the oriented puzzle, then relabel its
+     * digits, into 'candidate'.
+     */
+    private void orderOriented() {
+
+        // First keys: number of digits given in each line, column, and for
+        // each digit.
+        Arrays.fill(lineCount, 0);
+        Arrays.fill(colCount, 0);
+        Arrays.fill(digitKey, 0);
+        for (int cell = 0; cell < nbCells; cell++) {
+            int digit = oriented[cell];
+            if (digit != 0) {
+                lineCount[cell / size]++;
+                colCount[cell % size]++;
+                digitKey[digit]++;
+            }
+        }
+
+        // Refined keys: each digit sums the counts of the lines and columns
+        // where it is given, and each line (column) sums the keys of the
+        // columns (lines) and digits of its given squares.
+        for (int cell = 0; cell < nbCells; cell++) {
+            int digit = oriented[cell];
+            if (digit != 0) {
+                digitKey[digit] += mix((long) lineCount[cell / size] << 32 | colCount[cell % size]);
+            }
+        }
+        for (int line = 0; line < size; line++) {
+            long sum = lineCount[line];
+            for (int col = 0; col < size; col++) {
+                int digit = oriented[line * size + col];
+                if (digit != 0) {
+                    sum += mix(colCount[col] * GOLDEN + digitKey[digit]);
+                }
+            }
+            lineKey[line] = mix(sum);
+        }
+        for (int col = 0; col < size; col++) {
+            long sum = colCount[col];
+            for (int line = 0; line < size; line++) {
+                int digit = oriented[line * size + col];
+                if (digit != 0) {
+                    sum += mix(lineCount[line] * GOLDEN + digitKey[digit]);
+                }
+            }
+            colKey[col] = mix(sum);
+        }
+
+        orderInGroups(candidateLines, lineKey);
+        orderInGroups(candidateCols, colKey);
+
+        // Relabel the digits by order of first appearance; the digits absent
+        // from the puzzle take the last labels.
+        Arrays.fill(candidateLabel, 0);
+        int nextLabel = 1;
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                int digit = oriented[candidateLines[line] * size + candidateCols[col]];
+                if (digit != 0 && candidateLabel[digit] == 0) {
+                    candidateLabel[digit] = nextLabel;
+                    nextLabel++;
+                }
+                candidate[line * size + col] = candidateLabel[digit];
+            }
+        }
+        for (int digit = 1; digit <= size; digit++) {
+            if (candidateLabel[digit] == 0) {
+                candidateLabel[digit] = nextLabel;
+                nextLabel++;
+            }
+        }
+    }
+
+    /**
+     * Order the bands (or stacks) by the keys of their lines (or columns),
+     * then the lines inside each band by their own keys. Ties keep their
+     * order.
+     *
+     * @param order receives the lines in their new order
+     * @param keys the key of each line
+     */
+    private void orderInGroups(int[] order, long[] keys) {
+        for (int group = 0; group < blockSize; group++) {
+            groups[group] = group;
+            long sum = 0;
+            for (int k = 0; k < blockSize; k++) {
+                sum += mix(keys[group * blockSize + k]);
+            }
+            groupKey[group] = sum;
+        }
+        sortByKey(groups, 0, blockSize, groupKey);
+        for (int i = 0; i < blockSize; i++) {
+            for (int k = 0; k < blockSize; k++) {
+                order[i * blockSize + k] = groups[i] * blockSize + k;
+            }
+            sortByKey(order, i * blockSize, blockSize, keys);
+        }
+    }
+
+    /**
+     * Stable insertion sort of a few items by their keys.
+     *
+     * @param keys indexed by item
+     */
+    private static void sortByKey(int[] items, int from, int length, long[] keys) {
+        for (int i = from + 1; i < from + length; i++) {
+            int item = items[i];
+            long key = keys[item];
+            int j = i - 1;
+            while (j >= from && keys[items[j]] > key) {
+                items[j + 1] = items[j];
+                j--;
+            }
+            items[j + 1] = item;
+        }
+    }
+
+    /**
+     * Spread the bits of a value, so that sums of mixed values rarely
+     * collide.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
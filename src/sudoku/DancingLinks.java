@@ -0,0 +1,367 @@
+/**
+ * This file represents an exact cover solver, using Dancing Links.
+ */
+package sudoku;
+
+/**
+ * Solve a grid as an exact cover problem with Knuth's Algorithm X, using
+ * Dancing Links.
+ *
+ * The matrix has one row per (square, digit) pair and 4 * size * size
+ * columns: one per square, one per (line, digit), one per (column, digit) and
+ * one per (block, digit). It is built once; each puzzle covers the columns of
+ * its given digits, and everything is uncovered once the search is over, so
+ * the same matrix is used for the next puzzle.
+ *
+ * The links are stored in flat int arrays: node 0 is the root, nodes 1 to
+ * nbColumns are the column headers, and each matrix row has 4 nodes after
+ * them.
+ *
+ * @author arthurmanoha
+ */
+class DancingLinks {
+
+    private final int size;
+    private final int nbCells;
+    private final int nbColumns;
+
+    // Links of each node: left, right, up, down.
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+
+    // Column header of each node.
+    private final int[] column;
+
+    // Matrix row of each node: square * size + digit - 1.
+    private final int[] row;
+
+    // Number of nodes in each column, indexed by header.
+    private final int[] columnSize;
+
+    // Index of the first node of each matrix row.
+    private final int[] firstNodeOfRow;
+
+    // Flags that tell which columns are covered by the given digits.
+    private final boolean[] coveredByGiven;
+
+    // The rows chosen so far: the given digits, then the search.
+    private final int[] chosenRows;
+    private int nbChosenRows;
+    private int nbGivens;
+
+    // Column covered and node of the row tried at each level of the search.
+    private final int[] levelColumn;
+    private final int[] levelNode;
+
+    // Number of nodes visited by the last search, dead ends, and deepest level.
+    private long step;
+    private long nbBacktracks;
+    private int maxDepth;
+
+    // Limits of the current search, null for none, and why it stopped.
+    private SolveBudget budget;
+    private SolveStatus stopStatus;
+
+    DancingLinks(int size) {
+        this.size = size;
+        this.nbCells = size * size;
+        this.nbColumns = 4 * nbCells;
+        int nbRows = nbCells * size;
+        int nbNodes = 1 + nbColumns + 4 * nbRows;
+
+        left = new int[nbNodes];
+        right = new int[nbNodes];
+        up = new int[nbNodes];
+        down = new int[nbNodes];
+        column = new int[nbNodes];
+        row = new int[nbNodes];
+        columnSize = new int[nbColumns + 1];
+        firstNodeOfRow = new int[nbRows];
+        coveredByGiven = new boolean[nbColumns + 1];
+        chosenRows = new int[nbCells];
+        levelColumn = new int[nbCells];
+        levelNode = new int[nbCells];
+
+        // Root and column headers, in a circular list.
+        for (int header = 0; header <= nbColumns; header++) {
+            left[header] = (header == 0) ? nbColumns : header - 1;
+            right[header] = (header == nbColumns) ? 0 : header + 1;
+            up[header] = header;
+            down[header] = header;
+            column[header] = header;
+        }
+
+        int blockSize = (int) Math.round(Math.sqrt(size));
+        int node = nbColumns + 1;
+        for (int cell = 0; cell < nbCells; cell++) {
+            int line = cell / size;
+            int col = cell % size;
+            int block = (line / blockSize) * blockSize + col / blockSize;
+            for (int d = 0; d < size; d++) {
+                int matrixRow = cell * size + d;
+                firstNodeOfRow[matrixRow] = node;
+                int[] headers = {
+                    1 + cell,
+                    1 + nbCells + line * size + d,
+                    1 + 2 * nbCells + col * size + d,
+                    1 + 3 * nbCells + block * size + d
+                };
+                for (int k = 0; k < 4; k++) {
+                    int header = headers[k];
+                    row[node + k] = matrixRow;
+                    column[node + k] = header;
+                    left[node + k] = node + (k + 3) % 4;
+                    right[node + k] = node + (k + 1) % 4;
+                    // Append at the bottom of the column.
+                    up[node + k] = up[header];
+                    down[node + k] = header;
+                    down[up[header]] = node + k;
+                    up[header] = node + k;
+                    columnSize[header]++;
+                }
+                node += 4;
+            }
+        }
+    }
+
+    long getStep() {
+        return step;
+    }
+
+    /**
+     * Write what the last search did.
+     */
+    void fillMetrics(SolveMetrics metrics) {
+        metrics.setSearch(step, nbBacktracks, maxDepth);
+    }
+
+    /**
+     * Solve a grid.
+     *
+     * @param solvedDigits the digits of the grid, 0 for empty squares; the
+     * solution is written there when one is found.
+     * @return true when the grid has a solution, false otherwise.
+     */
+    boolean solve(int[][] solvedDigits) {
+        step = 0;
+        nbBacktracks = 0;
+        maxDepth = 0;
+        nbChosenRows = 0;
+
+        boolean found = coverGivens(solvedDigits) && search();
+
+        if (found) {
+            for (int i = 0; i < nbChosenRows; i++) {
+                int matrixRow = chosenRows[i];
+                int cell = matrixRow / size;
+                solvedDigits[cell / size][cell % size] = matrixRow % size + 1;
+            }
+        }
+        uncoverGivens();
+        return found;
+    }
+
+    /**
+     * Solve a grid within a budget.
+     *
+     * @param solvedDigits the digits of the grid, 0 for empty squares
+     * @return SOLVED, with the solution written in the grid; UNSOLVABLE; or
+     * why the search stopped, with the grid left as it was.
+     */
+    SolveStatus solve(int[][] solvedDigits, SolveBudget budget) {
+        this.budget = budget;
+        stopStatus = null;
+        budget.start();
+        try {
+            boolean found = solve(solvedDigits);
+            if (stopStatus != null) {
+                return stopStatus;
+            }
+            return found ? SolveStatus.SOLVED : SolveStatus.UNSOLVABLE;
+        } finally {
+            this.budget = null;
+        }
+    }
+
+    /**
+     * Choose the rows of the given digits and cover their columns.
+     *
+     * @return false when two given digits share a column, i.e. break a rule.
+     */
+    private boolean coverGivens(int[][] solvedDigits) {
+        nbGivens = 0;
+        for (int cell = 0; cell < nbCells; cell++) {
+            int digit = solvedDigits[cell / size][cell % size];
+            if (digit != 0) {
+                int first = firstNodeOfRow[cell * size + digit - 1];
+                for (int k = 0; k < 4; k++) {
+                    if (coveredByGiven[column[first + k]]) {
+                        return false;
+                    }
+                }
+                chosenRows[nbGivens] = row[first];
+                nbGivens++;
+                for (int k = 0; k < 4; k++) {
+                    coveredByGiven[column[first + k]] = true;
+                    cover(column[first + k]);
+                }
+            }
+        }
+        nbChosenRows = nbGivens;
+        return true;
+    }
+
+    /**
+     * Uncover the columns of the given digits, in reverse order, so that the
+     * matrix is complete again for the next puzzle.
+     */
+    private void uncoverGivens() {
+        for (int i = nbGivens - 1; i >= 0; i--) {
+            int first = firstNodeOfRow[chosenRows[i]];
+            for (int k = 3; k >= 0; k--) {
+                coveredByGiven[column[first + k]] = false;
+                uncover(column[first + k]);
+            }
+        }
+        nbGivens = 0;
+    }
+
+    /**
+     * Algorithm X, without recursion: for each level of the search,
+     * levelColumn holds the column being covered and levelNode the node of
+     * the row tried in it (the column header before the first row).
+     *
+     * @return true when all columns are covered; chosenRows then holds the
+     * solution. All the columns covered by the search are uncovered again,
+     * also when the budget stops the search; stopStatus then tells why.
+     */
+    private boolean search() {
+        int level = nbGivens;
+        boolean enterLevel = true;
+
+        while (true) {
+            if (enterLevel) {
+                step++;
+                if (level - nbGivens > maxDepth) {
+                    maxDepth = level - nbGivens;
+                }
+                if (budget != null) {
+                    stopStatus = budget.check(step);
+                    if (stopStatus != null) {
+                        unwind(level);
+                        return false;
+                    }
+                }
+                int header = chooseColumn();
+                if (header == 0) {
+                    // Every column is covered: solution found.
+                    nbChosenRows = level;
+                    unwind(level);
+                    return true;
+                }
+                if (columnSize[header] == 0) {
+                    // Dead end: go back to the previous level.
+                    nbBacktracks++;
+                    if (level == nbGivens) {
+                        return false;
+                    }
+                    level--;
+                    enterLevel = false;
+                    continue;
+                }
+                cover(header);
+                levelColumn[level] = header;
+                levelNode[level] = header;
+            }
+
+            // Undo the row tried at this level, if any, and take the next one.
+            int header = levelColumn[level];
+            int node = levelNode[level];
+            if (node != header) {
+                for (int j = left[node]; j != node; j = left[j]) {
+                    uncover(column[j]);
+                }
+            }
+            node = down[node];
+
+            if (node == header) {
+                // All rows of this column failed: go back one level.
+                uncover(header);
+                nbBacktracks++;
+                if (level == nbGivens) {
+                    return false;
+                }
+                level--;
+                enterLevel = false;
+                continue;
+            }
+
+            levelNode[level] = node;
+            chosenRows[level] = row[node];
+            for (int j = right[node]; j != node; j = right[j]) {
+                cover(column[j]);
+            }
+            level++;
+            enterLevel = true;
+        }
+    }
+
+    /**
+     * Uncover everything the search covered, from the deepest level up.
+     */
+    private void unwind(int level) {
+        for (int l = level - 1; l >= nbGivens; l--) {
+            int node = levelNode[l];
+            for (int j = left[node]; j != node; j = left[j]) {
+                uncover(column[j]);
+            }
+            uncover(levelColumn[l]);
+        }
+    }
+
+    /**
+     * Find the uncovered column with the fewest nodes.
+     *
+     * @return its header, or 0 when all columns are covered.
+     */
+    private int chooseColumn() {
+        int best = 0;
+        int bestSize = Integer.MAX_VALUE;
+        for (int header = right[0]; header != 0; header = right[header]) {
+            if (columnSize[header] < bestSize) {
+                bestSize = columnSize[header];
+                best = header;
+                if (bestSize <= 1) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private void cover(int header) {
+        right[left[header]] = right[header];
+        left[right[header]] = left[header];
+        for (int i = down[header]; i != header; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                columnSize[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int header) {
+        for (int i = up[header]; i != header; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                columnSize[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[header]] = header;
+        left[right[header]] = header;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * This file represents the difficulty levels of the puzzles.
+ */
+package sudoku;
+
+/**
+ * How hard a puzzle is, from the hardest technique it needs; see
+ * DifficultyRater.
+ *
+ * @author arthurmanoha
+ */
+public enum Difficulty {
+
+    /**
+     * Naked and hidden singles are enough.
+     */
+    EASY,
+    /**
+     * Pointing or box-line reduction is needed.
+     */
+    MEDIUM,
+    /**
+     * Naked or hidden pairs or triples are needed.
+     */
+    HARD,
+    /**
+     * X-Wing or Swordfish is needed.
+     */
+    EXPERT,
+    /**
+     * The techniques are not enough: the puzzle needs guessing.
+     */
+    DIABOLIC
+}
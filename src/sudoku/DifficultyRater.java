@@ -0,0 +1,173 @@
+/**
+ * This file represents the automatic rating of puzzles.
+ */
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Rate puzzles by the techniques they need. The rules and the advanced
+ * techniques are applied to a fixpoint by Grid.solveLogically(), which tries
+ * them from the simplest; the hardest one used gives the difficulty. When
+ * they are not enough, the propagation solver finishes the puzzle, and its
+ * search adds to the score.
+ *
+ * The score is the weight of the hardest technique, plus a tenth of the
+ * weights of all the techniques used, plus, when guessing was needed,
+ * SEARCH_WEIGHT and BACKTRACK_WEIGHT per backtrack.
+ *
+ * A rater reuses one grid per size and one solver, prints nothing, and is
+ * meant for one thread; use one rater per thread.
+ *
+ * @author arthurmanoha
+ */
+public class DifficultyRater {
+
+    // Weight of each technique, indexed by Technique.ordinal().
+    private static final int[] WEIGHTS = {
+        1, // NAKED_SINGLE
+        2, // HIDDEN_SINGLE
+        10, // POINTING
+        10, // BOX_LINE
+        20, // NAKED_PAIR
+        25, // HIDDEN_PAIR
+        30, // NAKED_TRIPLE
+        35, // HIDDEN_TRIPLE
+        50, // X_WING
+        60 // SWORDFISH
+    };
+    private static final int SEARCH_WEIGHT = 100;
+    private static final int BACKTRACK_WEIGHT = 10;
+
+    private Grid grid;
+    private PropagationSolver solver;
+    private int[][] digits;
+    private final SolveMetrics searchMetrics = new SolveMetrics();
+
+    // Uses of each technique in the puzzle being rated.
+    private final int[] counts = new int[Technique.values().length];
+
+    private final SolveListener listener = new SolveListener() {
+        @Override
+        public void digitFound(int line, int col, int digit, Technique technique) {
+            counts[technique.ordinal()]++;
+        }
+
+        @Override
+        public void candidateRemoved(int line, int col, int digit, Technique technique) {
+            counts[technique.ordinal()]++;
+        }
+    };
+
+    /**
+     * Rate a puzzle.
+     *
+     * @param puzzle in any format read by Grid.initGrid()
+     * @throws IllegalArgumentException when the text is not a puzzle.
+     */
+    public Rating rate(String puzzle) {
+        int size = Grid.sizeOf(puzzle);
+        if (grid == null || grid.getSize() != size) {
+            grid = new Grid(size);
+        }
+        grid.initGrid(puzzle);
+        return rate(grid);
+    }
+
+    /**
+     * Rate the puzzle held by a grid; the digits found by the techniques are
+     * written in the grid.
+     */
+    public Rating rate(Grid puzzle) {
+        Arrays.fill(counts, 0);
+        LogicResult result = puzzle.solveLogically(listener);
+
+        Technique hardest = null;
+        int score = 0;
+        for (Technique technique : Technique.values()) {
+            int count = counts[technique.ordinal()];
+            if (count > 0) {
+                hardest = technique;
+                score += WEIGHTS[technique.ordinal()] * count / 10;
+            }
+        }
+        if (hardest != null) {
+            score += WEIGHTS[hardest.ordinal()];
+        }
+
+        if (result.isSolved()) {
+            return new Rating(difficultyOf(hardest), score, hardest, counts.clone(), 0, 0, true);
+        }
+
+        // The techniques are stuck: finish with a search.
+        int size = puzzle.getSize();
+        if (solver == null || digits.length != size) {
+            solver = new PropagationSolver(size);
+            digits = new int[size][size];
+        }
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                digits[line][col] = puzzle.getDigit(line, col);
+            }
+        }
+        boolean solvable = solver.solve(digits);
+        solver.fillMetrics(searchMetrics);
+        score += SEARCH_WEIGHT + BACKTRACK_WEIGHT * (int) Math.min(searchMetrics.getBacktracks(), 100_000);
+        return new Rating(Difficulty.DIABOLIC, score, hardest, counts.clone(),
+                searchMetrics.getNodes(), searchMetrics.getBacktracks(), solvable);
+    }
+
+    private static Difficulty difficultyOf(Technique hardest) {
+        if (hardest == null) {
+            return Difficulty.EASY;
+        }
+        switch (hardest) {
+            case POINTING:
+            case BOX_LINE:
+                return Difficulty.MEDIUM;
+            case NAKED_PAIR:
+            case HIDDEN_PAIR:
+            case NAKED_TRIPLE:
+            case HIDDEN_TRIPLE:
+                return Difficulty.HARD;
+            case X_WING:
+            case SWORDFISH:
+                return Difficulty.EXPERT;
+            default:
+                return Difficulty.EASY;
+        }
+    }
+
+    /**
+     * Rate every puzzle of the input, and write for each one a line with the
+     * puzzle, its difficulty and its score. Empty lines are skipped; a line
+     * that is not a puzzle is written back with "INVALID".
+     *
+     * @return the number of puzzles rated.
+     * @throws IOException when reading or writing fails.
+     */
+    public long rateAll(BufferedReader in, Writer out) throws IOException {
+        long count = 0;
+        String text;
+        while ((text = in.readLine()) != null) {
+            text = text.trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            out.append(text).append(' ');
+            try {
+                Rating rating = rate(text);
+                out.append(rating.getDifficulty().name()).append(' ').append(Integer.toString(rating.getScore()));
+            } catch (IllegalArgumentException e) {
+                out.append("INVALID");
+            }
+            out.append('\n');
+            count++;
+        }
+        out.flush();
+        return count;
+    }
+}
@@ -3,10 +3,6 @@
  */
 package sudoku;
 
-import java.io.IOException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
 /**
  *
  * @author arthurmanoha
@@ -42,46 +38,99 @@ public class Grid {
             + "060200400" + "034000580" + "090800300"
             + "009024000" + "000700014" + "300000000";
 
-    private static int maxIndex = 0;
+    // Statistics of the last solve; kept per grid so that several grids may be
+    // solved at the same time in different threads.
+    private int step = 0;
+    private int maxDepthReached = 0;
+    private int nbBacktracks = 0;
+
+    // Receives the metrics of each solve; null when they are not collected.
+    private SolverStats stats;
+    private final SolveMetrics lastMetrics = new SolveMetrics();
+    // The grid before the solve, kept for the statistics.
+    private final StringBuilder puzzleText = new StringBuilder();
 
-    private static int step = 0;
-    private static int maxDepthReached = 0;
+    // Largest grid size: each digit needs one bit in the candidate masks.
+    public static final int MAX_SIZE = 25;
+
+    // Smallest grid size that solve() hands to solveWithLogicAndSearch().
+    public static final int LOGIC_SEARCH_MIN_SIZE = 25;
 
     // Number of columns, or digits.
     private int size;
 
-    // The values of the numbers in the grid; 0 for empty, 1-9 for found value.
+    // Number of lines or columns in a block, i.e. the square root of size.
+    private int blockSize;
+
+    // The values of the numbers in the grid; 0 for empty, 1-size for found value.
     private int[][] solvedDigits;
 
     // Flags that are true for the numbers we need to find, false for given values.
     private boolean[][] variable;
 
-    // Flags that tell which values are still possible.
-    // possibleValues[line][col][digit] tells if 'digit+1' is still allowed at that line and column.
-    private boolean[][][] possibleValues;
+    // Flags that tell which values are still possible, one bitmask per square.
+    private Candidates candidates;
+
+    // Receives the progress of solveLogically(); null when nobody listens.
+    private SolveListener listener;
+
+    // Applies the rules for solveLogically(), on a flat copy of the digits.
+    private Propagator propagator;
+    private int[] propagatorDigits;
+    // Applied by solveLogically() when the singles are not enough.
+    private AdvancedRules advancedRules;
+    // Number of passes of the rules in the last call to applyRules().
+    private int nbPasses;
+
+    // Number of digits found by the rules since applyRules() started.
+    private int nbRuleDigits;
 
-    private boolean solvingManually;
+    // Saved states of solveWithLogicAndSearch(), one per level; created on
+    // first use.
+    private GridState[] searchStates;
 
-    // Score at the beginning, i.e. how many digits are aready in place.
-    private int initialScore;
+    // Limits of the current search, null for none, and why it stopped.
+    private SolveBudget budget;
+    private SolveStatus stopStatus;
 
+    // Frames of the backtracking search: (square index, last digit tried).
+    private int[] backtrackStack;
+
+    // Created on first use of solveWithPropagation().
+    private PropagationSolver propagationSolver;
+
+    // Created on first use of solveWithDancingLinks().
+    private DancingLinks dancingLinks;
+
+    // Created on first use of solveInParallel(), with the grid before the
+    // search, brought back when it fails.
+    private ParallelSearch parallelSearch;
+    private GridState parallelStart;
+
+    /**
+     * Create an empty grid.
+     *
+     * @param size the number of lines, columns and digits: 4, 9, 16 or 25.
+     * @throws IllegalArgumentException when size is not the square of a whole
+     * number, or is too large.
+     */
     public Grid(int size) {
+        int blockSize = (int) Math.round(Math.sqrt(size));
+        if (size < 1 || size > MAX_SIZE || blockSize * blockSize != size) {
+            throw new IllegalArgumentException("Unsupported grid size " + size);
+        }
         this.size = size;
+        this.blockSize = blockSize;
         this.solvedDigits = new int[size][];
-        this.possibleValues = new boolean[size][][];
-        this.maxIndex = size * size;
+        this.candidates = new Candidates(size);
         this.variable = new boolean[size][];
+        this.backtrackStack = new int[2 * size * size];
         for (int i = 0; i < size; i++) {
             solvedDigits[i] = new int[size];
-            possibleValues[i] = new boolean[size][];
             variable[i] = new boolean[size];
             for (int j = 0; j < size; j++) {
                 solvedDigits[i][j] = 0;
                 variable[i][j] = false;
-                possibleValues[i][j] = new boolean[size];
-                for (int k = 0; k < size; k++) {
-                    possibleValues[i][j][k] = true;
-                }
             }
         }
     }
@@ -90,76 +139,285 @@ public class Grid {
         this(9);
     }
 
+    /**
+     * Create a grid holding a puzzle; the size of the grid follows the number
+     * of squares in the text.
+     *
+     * @param text the puzzle, in one of the formats read by initGrid().
+     */
     public Grid(String text) {
-        this(9);
+        this(sizeOf(text));
         initGrid(text);
     }
 
-    public final void initGrid(String text) {
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Find the size of the grid described by a text.
+     *
+     * @param text the puzzle, in one of the formats read by initGrid().
+     * @return the number of lines of the grid.
+     * @throws IllegalArgumentException when the number of squares is not the
+     * square of a whole number.
+     */
+    public static int sizeOf(String text) {
+        int nbSquares = isSeparated(text) ? splitSquares(text).length : text.length();
+        int size = (int) Math.round(Math.sqrt(nbSquares));
+        if (size * size != nbSquares) {
+            throw new IllegalArgumentException(nbSquares + " squares do not make a square grid");
+        }
+        return size;
+    }
+
+    /**
+     * Find the value of one symbol of the one-character-per-square format.
+     *
+     * @return 0 for an empty square ('0' or '.'), 1-9 for '1'-'9', 10 and
+     * above for 'A' (or 'a') and the next letters; -1 for any other symbol.
+     */
+    public static int symbolValue(char c) {
+        if (c == '.') {
+            return 0;
+        } else if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the symbol of a digit in the one-character-per-square format.
+     *
+     * @param digit 0 for an empty square, or a digit from 1 to 35
+     * @return '0'-'9' for 0-9, 'A' and the next letters for 10 and above.
+     */
+    public static char symbolOf(int digit) {
+        return (char) (digit < 10 ? '0' + digit : 'A' + digit - 10);
+    }
+
+    // Texts with spaces or commas hold one number per square.
+    private static boolean isSeparated(String text) {
         for (int i = 0; i < text.length(); i++) {
-            int value = text.charAt(i) - '0';
-            int row = i / size;
-            int col = i - size * row;
-            solvedDigits[row][col] = value;
+            char c = text.charAt(i);
+            if (c == ' ' || c == ',' || c == '\t') {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            if (value == 0) {
-                variable[row][col] = true;
-            } else {
-                variable[row][col] = false;
-                // Only 'value' is allowed for this square.
-                for (int k = 0; k < size; k++) {
-                    possibleValues[row][col][k] = false;
+    private static String[] splitSquares(String text) {
+        return text.trim().split("[\\s,]+");
+    }
+
+    /**
+     * Empty the grid so that it can be filled again with another puzzle.
+     */
+    public final void reset() {
+        candidates.reset();
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                solvedDigits[line][col] = 0;
+                variable[line][col] = true;
+            }
+        }
+    }
+
+    /**
+     * Fill the grid with a puzzle, replacing the previous content.
+     *
+     * Two formats are read. Either one character per square, line after line:
+     * '0' or '.' for an empty square, '1'-'9' for 1-9, then 'A' for 10, 'B'
+     * for 11, etc. Or one number per square, separated by spaces or commas,
+     * with 0 for an empty square.
+     *
+     * @param text the puzzle
+     * @throws IllegalArgumentException when the text does not describe a
+     * puzzle of this size.
+     */
+    public final void initGrid(String text) {
+        if (isSeparated(text)) {
+            String[] squares = splitSquares(text);
+            checkNbSquares(squares.length);
+            reset();
+            for (int i = 0; i < squares.length; i++) {
+                int value;
+                try {
+                    value = Integer.parseInt(squares[i]);
+                } catch (NumberFormatException e) {
+                    value = -1;
                 }
-                possibleValues[row][col][value - 1] = true;
+                initSquare(i, value, squares[i]);
+            }
+        } else {
+            checkNbSquares(text.length());
+            reset();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                initSquare(i, symbolValue(c), c);
             }
         }
-        initialScore = getScore();
     }
 
-    public void printGrid() {
+    /**
+     * Fill the grid with a puzzle, replacing the previous content, without
+     * going through a text; used by the binary readers.
+     *
+     * @param digits one value per square, line after line, 0 for an empty
+     * square.
+     * @throws IllegalArgumentException when the digits do not describe a
+     * puzzle of this size.
+     */
+    public final void initGrid(int[] digits) {
+        checkNbSquares(digits.length);
+        reset();
+        for (int i = 0; i < digits.length; i++) {
+            initSquare(i, digits[i], digits[i]);
+        }
+    }
 
-        if (solvingManually && !isSolved()) {
-            for (int line = 0; line < size; line++) {
-                for (int col = 0; col < size; col++) {
-                    if (solvedDigits[line][col] != 0) {
-                        // Print the only value.
-                        System.out.print("   <" + solvedDigits[line][col] + ">   ");
-                    } else {
-                        // Print all the possible values.
-                        for (int k = 0; k < size; k++) {
-                            if (possibleValues[line][col][k]) {
-                                System.out.print((k + 1) + "");
-                            } else {
-                                System.out.print("-");
-                            }
-                        }
-                    }
-                    if (3 * ((col + 1) / 3) == (col + 1)) {
-                        System.out.print(" || ");
-                    } else {
-                        System.out.print(" ");
-                    }
-                }
-                System.out.println("");
-                if (3 * ((line + 1) / 3) == (line + 1)) {
-                    System.out.println("--------------------------------------------------------------------------------------------------");
+    /**
+     * Write a solution found elsewhere, e.g. in a SolutionCache, the way the
+     * solvers write theirs: the given digits stay given.
+     *
+     * @param digits one digit per square, line after line
+     */
+    void setSolution(int[] digits) {
+        for (int i = 0; i < digits.length; i++) {
+            solvedDigits[i / size][i % size] = digits[i];
+        }
+        syncCandidates();
+    }
+
+    /**
+     * Rebuild the candidates from the digits, after a solver that works on its
+     * own copy wrote its digits back; canPlaceDigit() and placeDigit() rely on
+     * them.
+     */
+    private void syncCandidates() {
+        candidates.reset();
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                if (solvedDigits[line][col] != 0) {
+                    candidates.place(line * size + col, solvedDigits[line][col]);
                 }
             }
+        }
+    }
+
+    /**
+     * @return the digit at (line, col), 0 for an empty square.
+     */
+    public int getDigit(int line, int col) {
+        return solvedDigits[line][col];
+    }
+
+    /**
+     * @return a state that can hold any state of this grid; see save().
+     */
+    public GridState newState() {
+        return new GridState(size, size * size + candidates.getStateLength());
+    }
+
+    /**
+     * Copy the whole state of the grid (digits, given squares and candidates)
+     * into a state, so that it can be brought back with restore(), e.g. after
+     * trying a digit.
+     *
+     * @param state a state made by newState(), for a grid of this size
+     */
+    public void save(GridState state) {
+        checkState(state);
+        int[] values = state.values;
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                int digit = solvedDigits[line][col];
+                values[line * size + col] = variable[line][col] ? digit : -digit;
+            }
+        }
+        candidates.save(values, size * size);
+    }
+
+    /**
+     * Bring back a state copied with save(); every change made since,
+     * including candidates removed by the rules, is undone.
+     *
+     * @param state a state saved from a grid of this size
+     */
+    public void restore(GridState state) {
+        checkState(state);
+        int[] values = state.values;
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                int value = values[line * size + col];
+                solvedDigits[line][col] = Math.abs(value);
+                variable[line][col] = value >= 0;
+            }
+        }
+        candidates.restore(values, size * size);
+    }
+
+    private void checkState(GridState state) {
+        if (state.getSize() != size) {
+            throw new IllegalArgumentException("State of a grid of size " + state.getSize()
+                    + " used with a grid of size " + size);
+        }
+    }
+
+    private void checkNbSquares(int nbSquares) {
+        if (nbSquares != size * size) {
+            throw new IllegalArgumentException("Expected " + size * size
+                    + " squares, found " + nbSquares);
+        }
+    }
+
+    /**
+     * Put a given value in the square number i.
+     *
+     * @param symbol the text of the value, for the error message.
+     */
+    private void initSquare(int i, int value, Object symbol) {
+        if (value < 0 || value > size) {
+            throw new IllegalArgumentException("Invalid square '" + symbol
+                    + "' at position " + i);
+        }
+        int row = i / size;
+        int col = i - size * row;
+        solvedDigits[row][col] = value;
+
+        if (value == 0) {
+            variable[row][col] = true;
         } else {
-            for (int i = 0; i < size; i++) {
-                for (int j = 0; j < size; j++) {
-                    int value = solvedDigits[i][j];
-                    System.out.print(value == 0 ? "-" : value);
-                    if (3 * ((j + 1) / 3) == (j + 1)) {
-                        System.out.print(" ");
-                    }
-                }
-                System.out.println("");
+            variable[row][col] = false;
+            candidates.place(i, value);
+        }
+    }
+
+    /**
+     * Write the grid as one line of symbols, '0' for the empty squares; see
+     * symbolOf().
+     *
+     * @param sb the builder the line is appended to.
+     */
+    public void appendLine(StringBuilder sb) {
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                sb.append(symbolOf(solvedDigits[line][col]));
             }
-            System.out.println("...\n");
         }
-        System.out.println((this.getScore() - initialScore) + " digits found, "
-                + (81 - this.getScore()) + " remaining.");
+    }
+
+    /**
+     * @return the mask of the candidates of (line, col), bit k for the digit
+     * k+1; 0 for a square that holds a digit.
+     */
+    int getCandidateMask(int line, int col) {
+        return candidates.getMask(line * size + col);
     }
 
     /**
@@ -170,57 +428,604 @@ public class Grid {
      * no solution.
      */
     public boolean solveWithBacktrack() {
-        solvingManually = false;
-        return solveWithBacktrack(0);
+        long start = startMetrics();
+        boolean solved = isCorrect() && solveWithBacktrackLoop() == SolveStatus.SOLVED;
+        if (stats != null) {
+            lastMetrics.setSearch(step, nbBacktracks, maxDepthReached);
+            recordMetrics("backtrack", solved, start);
+        }
+        return solved;
     }
 
     /**
-     * Solve with backtrack algorithm, trying to find the number at position
-     * 'index';
+     * Solve with the backtracking algorithm, within a budget. When the
+     * budget stops the search, the grid is left as it was.
      *
-     * @param index the index of the number we try to find while still having a
-     * solution for the rest of the grid.
-     * @return true if the grid has a valid solution with this number and all
-     * the ones after.
+     * @param budget the limits of the search
+     * @return the status, and what the search did.
      */
-    private boolean solveWithBacktrack(int index) {
+    public SolveResult solveWithBacktrack(SolveBudget budget) {
+        startMetrics();
+        long start = System.nanoTime();
+        SolveStatus status = SolveStatus.UNSOLVABLE;
+        if (isCorrect()) {
+            this.budget = budget;
+            budget.start();
+            try {
+                status = solveWithBacktrackLoop();
+            } finally {
+                this.budget = null;
+            }
+        }
+        SolveMetrics metrics = new SolveMetrics();
+        metrics.setSearch(step, nbBacktracks, maxDepthReached);
+        return boundedResult("backtrack", status, start, metrics);
+    }
 
-        step++;
+    /**
+     * Solve with backtrack algorithm, without recursion. The empty squares are
+     * filled in index order; each one has a frame in backtrackStack holding the
+     * square index and the last digit tried there.
+     *
+     * @return SOLVED, UNSOLVABLE, or why the budget stopped the search.
+     */
+    private SolveStatus solveWithBacktrackLoop() {
 
-        if (index > maxDepthReached) {
-            maxDepthReached = index;
+        step = 0;
+        maxDepthReached = 0;
+        nbBacktracks = 0;
+
+        // Push one frame per empty square.
+        int nbFrames = 0;
+        for (int index = 0; index < size * size; index++) {
+            if (variable[index / size][index % size]) {
+                backtrackStack[2 * nbFrames] = index;
+                backtrackStack[2 * nbFrames + 1] = 0;
+                nbFrames++;
+            }
         }
 
-        int line = index / 9;
-        int col = index - 9 * line;
+        int depth = 0;
+        while (depth < nbFrames) {
 
-        if (line >= 9) {
-            System.out.println("Success ! " + step + " steps, max depth reached: "
-                    + maxDepthReached);
-            printGrid();
-            return true;
-        } else if (line < 0) {
-            System.out.println("No solution; " + step + " steps, "
-                    + "max depth reached: " + maxDepthReached);
+            step++;
+            if (budget != null) {
+                SolveStatus stop = budget.check(step);
+                if (stop != null) {
+                    // Empty the squares filled by the search.
+                    for (int frame = 0; frame < nbFrames; frame++) {
+                        int cell = backtrackStack[2 * frame];
+                        clearDigit(cell / size, cell % size);
+                    }
+                    return stop;
+                }
+            }
+
+            int index = backtrackStack[2 * depth];
+            if (depth > maxDepthReached) {
+                maxDepthReached = depth;
+            }
+            int line = index / size;
+            int col = index - size * line;
+
+            // Try the next digit that fits at this square.
+            clearDigit(line, col);
+            int digit = backtrackStack[2 * depth + 1] + 1;
+            while (digit <= size && !canPlaceDigit(line, col, digit)) {
+                digit++;
+            }
+
+            if (digit <= size) {
+                setDigit(line, col, digit);
+                backtrackStack[2 * depth + 1] = digit;
+                depth++;
+                if (depth < nbFrames) {
+                    backtrackStack[2 * depth + 1] = 0;
+                }
+            } else {
+                // Tested all values, none fits. Need to go backward.
+                backtrackStack[2 * depth + 1] = 0;
+                depth--;
+                nbBacktracks++;
+                if (depth < 0) {
+                    return SolveStatus.UNSOLVABLE;
+                }
+            }
+        }
+        return SolveStatus.SOLVED;
+    }
+
+    /**
+     * Tell if a digit may go at (line, col) without being repeated in the
+     * line, column or block. This takes constant time, as long as the digits
+     * already in the grid are correct.
+     *
+     * @param line
+     * @param col
+     * @param digit the digit we test (1->size)
+     * @return true when the digit is not yet used in the line, column or block.
+     */
+    public boolean canPlaceDigit(int line, int col, int digit) {
+        return candidates.canPlace(line * size + col, digit);
+    }
+
+    /**
+     * Put a digit at (line, col), unless it is already used in the line,
+     * column or block. A digit already at (line, col) is removed first.
+     *
+     * @param line
+     * @param col
+     * @param digit the digit to place (1->size)
+     * @return true when the digit was placed, false when it would break a
+     * rule.
+     */
+    public boolean placeDigit(int line, int col, int digit) {
+        clearDigit(line, col);
+        if (!canPlaceDigit(line, col, digit)) {
             return false;
         }
+        setDigit(line, col, digit);
+        return true;
+    }
 
-        if (!variable[line][col]) {
-            // Go to the next empty square
-            return solveWithBacktrack(index + 1);
+    /**
+     * Empty the square (line, col).
+     *
+     * @param line
+     * @param col
+     */
+    public void clearDigit(int line, int col) {
+        int digit = solvedDigits[line][col];
+        if (digit != 0) {
+            solvedDigits[line][col] = 0;
+            candidates.unplace(line * size + col, digit);
         }
+    }
 
-        while (solvedDigits[line][col] < 9) {
-            solvedDigits[line][col]++;
-            if (isCorrect() && solveWithBacktrack(index + 1)) {
+    /**
+     * Solve the grid with solveWithPropagation() below LOGIC_SEARCH_MIN_SIZE,
+     * and with solveWithLogicAndSearch() from that size on.
+     *
+     * @return true when the grid has at least one solution, false when there is
+     * no solution.
+     */
+    public boolean solve() {
+        return size >= LOGIC_SEARCH_MIN_SIZE ? solveWithLogicAndSearch() : solveWithPropagation();
+    }
+
+    /**
+     * Solve the grid like solve(), within a budget.
+     *
+     * @param budget the limits of the search
+     * @return the status, and what the search did; when the budget stopped
+     * the search, the grid holds the digits deduced before the first guess.
+     */
+    public SolveResult solve(SolveBudget budget) {
+        return size >= LOGIC_SEARCH_MIN_SIZE ? solveWithLogicAndSearch(budget) : solveWithPropagation(budget);
+    }
+
+    /**
+     * Solve the grid with a backtracking algorithm that always fills the
+     * square with the fewest candidates first, and applies the rules one, two
+     * and three after each trial digit.
+     *
+     * @return true when the grid has at least one solution, false when there is
+     * no solution.
+     */
+    public boolean solveWithPropagation() {
+        if (propagationSolver == null) {
+            propagationSolver = new PropagationSolver(size);
+        }
+        long start = startMetrics();
+        boolean solved = propagationSolver.solve(solvedDigits);
+        syncCandidates();
+        if (stats != null) {
+            propagationSolver.fillMetrics(lastMetrics);
+            recordMetrics("propagation", solved, start);
+        }
+        return solved;
+    }
+
+    /**
+     * Solve the grid like solveWithPropagation(), within a budget.
+     *
+     * @param budget the limits of the search
+     * @return the status, and what the search did; when the budget stopped
+     * the search, the grid holds the digits deduced before the first guess.
+     */
+    public SolveResult solveWithPropagation(SolveBudget budget) {
+        if (propagationSolver == null) {
+            propagationSolver = new PropagationSolver(size);
+        }
+        startMetrics();
+        long start = System.nanoTime();
+        SolveStatus status = propagationSolver.solve(solvedDigits, budget);
+        syncCandidates();
+        SolveMetrics metrics = new SolveMetrics();
+        propagationSolver.fillMetrics(metrics);
+        return boundedResult("propagation", status, start, metrics);
+    }
+
+    /**
+     * Solve the grid with the rules and the techniques of solveLogically(),
+     * and guess only when they are stuck: each candidate of the empty square
+     * with the fewest candidates is tried in turn, from a saved state of the
+     * grid, so that going back also brings back the candidates removed by the
+     * techniques. Slower than solveWithPropagation() on most puzzles, but the
+     * search tree is much smaller on the hardest ones.
+     *
+     * @return true when the grid has at least one solution, false when there is
+     * no solution.
+     */
+    public boolean solveWithLogicAndSearch() {
+        long start = startMetrics();
+        boolean solved = startSearchWithLogic();
+        if (stats != null) {
+            lastMetrics.setSearch(step, nbBacktracks, maxDepthReached);
+            recordMetrics("logicSearch", solved, start);
+        }
+        return solved;
+    }
+
+    /**
+     * Solve the grid like solveWithLogicAndSearch(), within a budget.
+     *
+     * @param budget the limits of the search
+     * @return the status, and what the search did; when the budget stopped
+     * the search, the grid holds the digits deduced before the first guess.
+     */
+    public SolveResult solveWithLogicAndSearch(SolveBudget budget) {
+        startMetrics();
+        long start = System.nanoTime();
+        this.budget = budget;
+        budget.start();
+        SolveStatus status;
+        try {
+            boolean solved = startSearchWithLogic();
+            if (stopStatus != null) {
+                if (step > 1) {
+                    // Back to the state saved before the first guess.
+                    restore(searchStates[0]);
+                }
+                status = stopStatus;
+            } else {
+                status = solved ? SolveStatus.SOLVED : SolveStatus.UNSOLVABLE;
+            }
+        } finally {
+            this.budget = null;
+        }
+        SolveMetrics metrics = new SolveMetrics();
+        metrics.setSearch(step, nbBacktracks, maxDepthReached);
+        return boundedResult("logicSearch", status, start, metrics);
+    }
+
+    private boolean startSearchWithLogic() {
+        step = 0;
+        maxDepthReached = 0;
+        nbBacktracks = 0;
+        stopStatus = null;
+        if (searchStates == null) {
+            searchStates = new GridState[size * size + 1];
+        }
+        return searchWithLogic(0);
+    }
+
+    /**
+     * Apply the rules, then branch on the most constrained square.
+     *
+     * @param depth the number of digits guessed so far
+     * @return true when a solution was found, it is then in the grid; or when
+     * the budget stopped the search.
+     */
+    private boolean searchWithLogic(int depth) {
+        step++;
+        if (depth > maxDepthReached) {
+            maxDepthReached = depth;
+        }
+        if (budget != null) {
+            stopStatus = budget.check(step);
+            if (stopStatus != null) {
                 return true;
             }
         }
-        // Tested all values, none fits. Need to go backward.
-        solvedDigits[line][col] = 0;
+        if (!applyRules(false)) {
+            nbBacktracks++;
+            return false;
+        }
+        int cell = mostConstrainedSquare();
+        if (cell < 0) {
+            return true;
+        }
+        if (searchStates[depth] == null) {
+            searchStates[depth] = newState();
+        }
+        GridState state = searchStates[depth];
+        save(state);
+        for (int mask = candidates.getMask(cell); mask != 0; mask &= mask - 1) {
+            setDigit(cell / size, cell % size, Integer.numberOfTrailingZeros(mask) + 1);
+            if (searchWithLogic(depth + 1)) {
+                return true;
+            }
+            restore(state);
+        }
+        nbBacktracks++;
         return false;
     }
 
+    /**
+     * @return the empty square with the fewest candidates, -1 when the grid
+     * is full.
+     */
+    private int mostConstrainedSquare() {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < size * size; cell++) {
+            if (solvedDigits[cell / size][cell % size] == 0) {
+                int count = candidates.count(cell);
+                if (count < bestCount) {
+                    best = cell;
+                    bestCount = count;
+                    if (count <= 2) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Solve the grid on several threads: the rules are applied first, with
+     * the techniques of solveWithLogicAndSearch() on the grids that solve()
+     * gives to it, then the search tree is
+     * split on the candidates of its most constrained squares, each subtree
+     * is searched from its own copy of the state, and the first solution
+     * found stops the other threads. The threads and their solvers are kept
+     * for the next calls with the same number of threads. No more threads are
+     * used than there are processors; when that leaves one, the grid is
+     * solved with solve() instead. Meant for single hard grids, e.g. the
+     * larger sizes.
+     *
+     * @param nbThreads the number of threads
+     * @return true when the grid has at least one solution, false when there is
+     * no solution.
+     */
+    public boolean solveInParallel(int nbThreads) {
+        if (ParallelSearch.threadsFor(nbThreads) == 1) {
+            return solve();
+        }
+        long start = startMetrics();
+        boolean solved = searchInParallel(nbThreads, null) == SolveStatus.SOLVED;
+        if (stats != null) {
+            lastMetrics.setSearch(parallelSearch.getStep(), 0, 0);
+            recordMetrics("parallel", solved, start);
+        }
+        return solved;
+    }
+
+    /**
+     * Solve the grid like solveInParallel(), within a budget shared by all
+     * the threads: their nodes count together, and the deadline or cancel()
+     * stops all of them.
+     *
+     * @param nbThreads the number of threads
+     * @param budget the limits of the search
+     * @return the status, and what the search did; when the budget stopped
+     * the search, the grid is left as it was.
+     */
+    public SolveResult solveInParallel(int nbThreads, SolveBudget budget) {
+        if (ParallelSearch.threadsFor(nbThreads) == 1) {
+            saveParallelStart();
+            SolveResult result = solve(budget);
+            if (result.getStatus() != SolveStatus.SOLVED) {
+                restore(parallelStart);
+            }
+            return result;
+        }
+        startMetrics();
+        long start = System.nanoTime();
+        budget.start();
+        SolveStatus status = searchInParallel(nbThreads, budget);
+        SolveMetrics metrics = new SolveMetrics();
+        metrics.setSearch(parallelSearch.getStep(), 0, 0);
+        return boundedResult("parallel", status, start, metrics);
+    }
+
+    /**
+     * Apply the rules, with the techniques from LOGIC_SEARCH_MIN_SIZE like
+     * solve(), then search what is left with the ParallelSearch of this grid.
+     *
+     * @param budget already started; null for none
+     * @return the status; the grid holds the solution when SOLVED, and is
+     * left as it was otherwise.
+     */
+    private SolveStatus searchInParallel(int nbThreads, SolveBudget budget) {
+        ParallelSearch search = parallelSearchFor(nbThreads);
+        if (budget != null) {
+            // Like the first node of a search: the flag and the clock are
+            // checked.
+            SolveStatus early = budget.check(1);
+            if (early != null) {
+                return early;
+            }
+        }
+        if (!isCorrect()) {
+            return SolveStatus.UNSOLVABLE;
+        }
+        if (size < LOGIC_SEARCH_MIN_SIZE) {
+            // Like solve(): the techniques cost more than they save.
+            SolveStatus status = search.solve(solvedDigits, budget);
+            syncCandidates();
+            return status;
+        }
+        saveParallelStart();
+        SolveStatus status = applyRules(false)
+                ? search.solve(candidates, solvedDigits, budget)
+                : SolveStatus.UNSOLVABLE;
+        if (status == SolveStatus.SOLVED) {
+            syncCandidates();
+        } else {
+            restore(parallelStart);
+        }
+        return status;
+    }
+
+    private void saveParallelStart() {
+        if (parallelStart == null) {
+            parallelStart = newState();
+        }
+        save(parallelStart);
+    }
+
+    /**
+     * Count the solutions of the grid, with the propagation solver. The grid
+     * itself is not modified.
+     *
+     * @param limit the search stops as soon as this many solutions are found;
+     * 2 is enough to tell if the solution is unique.
+     * @return the number of solutions, at most 'limit'.
+     */
+    public long countSolutions(long limit) {
+        if (propagationSolver == null) {
+            propagationSolver = new PropagationSolver(size);
+        }
+        return propagationSolver.countSolutions(solvedDigits, limit);
+    }
+
+    /**
+     * Count the solutions of the grid on several threads: the search tree is
+     * split on its most constrained squares, and each thread searches its own
+     * subtrees; with a single thread, like countSolutions(long). Meant for
+     * hard grids with many solutions.
+     *
+     * @param limit the search stops as soon as this many solutions are found
+     * @param nbThreads the number of threads
+     * @return the number of solutions, at most 'limit'.
+     */
+    public long countSolutions(long limit, int nbThreads) {
+        if (ParallelSearch.threadsFor(nbThreads) == 1) {
+            return countSolutions(limit);
+        }
+        return parallelSearchFor(nbThreads).countSolutions(solvedDigits, limit);
+    }
+
+    private ParallelSearch parallelSearchFor(int nbThreads) {
+        int threads = ParallelSearch.threadsFor(nbThreads);
+        if (parallelSearch == null || parallelSearch.getNbThreads() != threads) {
+            parallelSearch = new ParallelSearch(size, threads);
+        }
+        return parallelSearch;
+    }
+
+    /**
+     * @return true when the grid has exactly one solution.
+     */
+    public boolean hasUniqueSolution() {
+        return countSolutions(2) == 1;
+    }
+
+    /**
+     * Solve the grid as an exact cover problem, with Dancing Links. The
+     * matrix is built on first use and reused for the next puzzles loaded in
+     * this grid.
+     *
+     * @return true when the grid has at least one solution, false when there is
+     * no solution.
+     */
+    public boolean solveWithDancingLinks() {
+        if (dancingLinks == null) {
+            dancingLinks = new DancingLinks(size);
+        }
+        long start = startMetrics();
+        boolean solved = dancingLinks.solve(solvedDigits);
+        syncCandidates();
+        if (stats != null) {
+            dancingLinks.fillMetrics(lastMetrics);
+            recordMetrics("dancingLinks", solved, start);
+        }
+        return solved;
+    }
+
+    /**
+     * Solve the grid like solveWithDancingLinks(), within a budget.
+     *
+     * @param budget the limits of the search
+     * @return the status, and what the search did; when the budget stopped
+     * the search, the grid is left as it was.
+     */
+    public SolveResult solveWithDancingLinks(SolveBudget budget) {
+        if (dancingLinks == null) {
+            dancingLinks = new DancingLinks(size);
+        }
+        startMetrics();
+        long start = System.nanoTime();
+        SolveStatus status = dancingLinks.solve(solvedDigits, budget);
+        syncCandidates();
+        SolveMetrics metrics = new SolveMetrics();
+        dancingLinks.fillMetrics(metrics);
+        return boundedResult("dancingLinks", status, start, metrics);
+    }
+
+    /**
+     * Collect the metrics of every solve of this grid into 'stats'. Without
+     * stats, which is the default, the solvers only keep their own counters.
+     *
+     * @param stats shared by any number of grids; null stops the collection.
+     */
+    public void setStats(SolverStats stats) {
+        this.stats = stats;
+    }
+
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return the metrics of the last solve, while stats are collected; see
+     * setStats(). The same object is reused for every solve.
+     */
+    public SolveMetrics getLastMetrics() {
+        return lastMetrics;
+    }
+
+    /**
+     * Keep the grid before a solve, when metrics are collected.
+     *
+     * @return the start time of the solve, 0 when metrics are not collected.
+     */
+    private long startMetrics() {
+        if (stats == null) {
+            return 0;
+        }
+        lastMetrics.clear();
+        puzzleText.setLength(0);
+        appendLine(puzzleText);
+        return System.nanoTime();
+    }
+
+    /**
+     * Finish the metrics of a solve run with a budget, and record them when
+     * stats are collected.
+     */
+    private SolveResult boundedResult(String solver, SolveStatus status, long start, SolveMetrics metrics) {
+        metrics.setOutcome(solver, status == SolveStatus.SOLVED, System.nanoTime() - start);
+        if (stats != null) {
+            stats.record(metrics, puzzleText);
+        }
+        return new SolveResult(status, metrics);
+    }
+
+    private void recordMetrics(String solver, boolean solved, long start) {
+        lastMetrics.setOutcome(solver, solved, System.nanoTime() - start);
+        stats.record(lastMetrics, puzzleText);
+    }
+
+    /**
+     * Check the whole grid for repeated digits. The solvers check each move
+     * incrementally; this full check is only meant to verify a grid.
+     *
+     * @return true when no digit appears twice in a line, column or block.
+     */
     public boolean isCorrect() {
 
         if (!this.areColumnsCorrect()) {
@@ -290,11 +1095,9 @@ public class Grid {
      */
     private boolean areBlocksCorrect() {
 
-        // The number of blocks is also the size of each block.
-        int nbBlocks = (int) Math.sqrt(size);
-
-        for (int iBlock = 0; iBlock < nbBlocks; iBlock++) {
-            for (int jBlock = 0; jBlock < nbBlocks; jBlock++) {
+        // The number of blocks on a side is also the size of each block.
+        for (int iBlock = 0; iBlock < blockSize; iBlock++) {
+            for (int jBlock = 0; jBlock < blockSize; jBlock++) {
 
                 if (!this.checkBlock(iBlock, jBlock)) {
                     return false;
@@ -336,8 +1139,6 @@ public class Grid {
     // Check the block (iBlock, jBlock);
     private boolean checkBlock(int iBlock, int jBlock) {
 
-        int blockSize = (int) Math.sqrt(size);
-
         // The value being checked
         for (int line = iBlock * blockSize; line < (iBlock + 1) * blockSize; line++) {
             for (int col = jBlock * blockSize; col < (jBlock + 1) * blockSize; col++) {
@@ -381,74 +1182,127 @@ public class Grid {
     }
 
     /**
-     * Solve manually by applying several times the defined techniques.
+     * Solve with the rules only: apply the rules
+     * one, two and three until they find nothing new.
      *
-     * @return true when a solution was found.
+     * @return whether the grid was solved, how many digits were found, and in
+     * how many passes.
      */
-    public boolean solveByHand() {
-
-        solvingManually = true;
-
-        printGrid();
-
-        step = 0;
-
-        // Apply the unicity rule as long as it finds new numbers.
-        int scoreBefore, scoreAfter;
-        do {
-            scoreBefore = getScore();
-            solveByHandStep();
-            scoreAfter = getScore();
-            step++;
-        } while (step < 1);
-//        } while (scoreBefore != scoreAfter);
-
-        System.out.println("Solving manually: " + step + " steps.");
-        printGrid();
+    public LogicResult solveLogically() {
+        return solveLogically(null);
+    }
 
-        if (isSolved()) {
-            System.out.println("grid solved");
-        } else if (isFull()) {
-            System.out.println("grid full but not solved.");
+    /**
+     * Solve with the rules only, and report the progress to a listener.
+     *
+     * The rules are applied by a Propagator: each pass removes the digits
+     * found in the previous pass from their peers, then looks for singles only
+     * in the lines, columns and blocks that changed. When the singles find
+     * nothing more, the advanced techniques (see Technique) are tried from the
+     * simplest, until one of them removes a candidate.
+     *
+     * @param listener receives each digit found, each candidate removed by an
+     * advanced technique, and each pass; may be null.
+     * @return whether the grid was solved, how many digits were found, and in
+     * how many passes.
+     */
+    public LogicResult solveLogically(SolveListener listener) {
+        this.listener = listener;
+        long start = startMetrics();
+        try {
+            int scoreAtStart = getScore();
+            applyRules(false);
+            boolean solved = isSolved();
+            if (stats != null) {
+                propagator.fillMetrics(lastMetrics);
+                recordMetrics("logic", solved, start);
+            }
+            return new LogicResult(solved, getScore() - scoreAtStart, nbPasses);
+        } finally {
+            this.listener = null;
         }
-        return isSolved();
     }
 
     /**
-     * Apply once every technique. Digit unicity, position unicity
+     * Apply the rules and the advanced techniques, like solveLogically(), but
+     * stop at the first pass that finds a digit; used by HintSession.
+     *
+     * @param listener receives the digits found and the candidates removed.
+     * @return false when the grid has no solution.
      */
-    private void solveByHandStep() {
-
+    boolean applyRulesUntilDigit(SolveListener listener) {
+        this.listener = listener;
         try {
-            while (true) {
-                printGrid();
-                System.out.println("**************");
-                System.out.println("**************");
-                System.out.println("*** STEP " + step + " ***");
-                System.out.println("**************");
-                System.out.println("**************");
+            return applyRules(true);
+        } finally {
+            this.listener = null;
+        }
+    }
 
-                ruleOne();
-                ruleTwo();
-                ruleThree();
+    /**
+     * Apply the rules, then the advanced techniques when the singles are
+     * stuck, until nothing more is found; the passes are counted in nbPasses.
+     *
+     * @param untilDigit stop after the first pass that finds a digit
+     * @return false when the grid has no solution.
+     */
+    private boolean applyRules(boolean untilDigit) {
+        if (propagator == null) {
+            propagatorDigits = new int[size * size];
+            propagator = new Propagator(candidates, propagatorDigits);
+            propagator.setListener(new SolveListener() {
+                @Override
+                public void digitFound(int line, int col, int digit, Technique technique) {
+                    solvedDigits[line][col] = digit;
+                    nbRuleDigits++;
+                    if (Grid.this.listener != null) {
+                        Grid.this.listener.digitFound(line, col, digit, technique);
+                    }
+                }
 
-                System.out.println("Press any key.");
-                System.in.read();
+                @Override
+                public void candidateRemoved(int line, int col, int digit, Technique technique) {
+                    if (Grid.this.listener != null) {
+                        Grid.this.listener.candidateRemoved(line, col, digit, technique);
+                    }
+                }
+            });
+            advancedRules = new AdvancedRules(candidates, propagator);
+        }
+        for (int cell = 0; cell < size * size; cell++) {
+            propagatorDigits[cell] = solvedDigits[cell / size][cell % size];
+        }
+
+        nbPasses = 0;
+        nbRuleDigits = 0;
+        boolean consistent = propagator.start();
+        while (consistent && !(untilDigit && nbRuleDigits > 0)) {
+            if (!propagator.hasWork()) {
+                // The singles are stuck: try the advanced techniques.
+                consistent = advancedRules.apply();
+                if (!consistent || !propagator.hasWork()) {
+                    break;
+                }
+            }
+            consistent = propagator.round();
+            nbPasses++;
+            if (listener != null) {
+                listener.passDone(this, nbPasses);
             }
-        } catch (IOException ex) {
-            Logger.getLogger(Grid.class.getName()).log(Level.SEVERE, null, ex);
         }
+        propagator.clear();
+        return consistent;
     }
 
     /**
      * Rule one: if a square contains a solved digit, then that digit may no
      * longer be candidate in the same line/col/block.
      */
-    private void ruleOne() {
+    void ruleOne() {
         for (int line = 0; line < size; line++) {
             for (int col = 0; col < size; col++) {
-                if (solvedDigits[line][col] != 0) {
-                    eliminateCandidate(line, col);
+                if (solvedDigits[line][col] == 0) {
+                    eliminateCandidates(line, col);
                 }
             }
         }
@@ -459,7 +1313,7 @@ public class Grid {
      * elected.
      *
      */
-    private void ruleTwo() {
+    void ruleTwo() {
         for (int line = 0; line < size; line++) {
             for (int col = 0; col < size; col++) {
                 validateOnlyCandidate(line, col);
@@ -472,47 +1326,35 @@ public class Grid {
      * col, or block) will be elected.
      *
      */
-    private void ruleThree() {
-        for (int line = 0; line < size; line++) {
-            for (int col = 0; col < size; col++) {
-                for (int candidate = 1; candidate <= 9; candidate++) {
-
-                    // Examine only the digits that still are candidates.
-                    if (possibleValues[line][col][candidate - 1]) {
-                        if (candidateHasOnlyOnePlaceToGo(candidate, line, col)) {
-                            solvedDigits[line][col] = candidate;
-                        }
-                    }
-                }
+    void ruleThree() {
+        for (int house = 0; house < candidates.getNbHouses(); house++) {
+            int hiddenSingles = candidates.getHiddenSingles(house);
+            while (hiddenSingles != 0) {
+                int candidate = Integer.numberOfTrailingZeros(hiddenSingles) + 1;
+                hiddenSingles &= hiddenSingles - 1;
+                electInHouse(candidate, house);
             }
         }
     }
 
     /**
-     * The value at (line, col) may no longer be a candidate in the given line
-     * and column, or in the corresponding block.
+     * Put a digit in a square and mark it as used in the line, column and
+     * block.
+     */
+    private void setDigit(int line, int col, int digit) {
+        solvedDigits[line][col] = digit;
+        candidates.place(line * size + col, digit);
+    }
+
+    /**
+     * The values already found in the line, column and block of (line, col)
+     * may no longer be candidates at (line, col).
      *
      * @param line
      * @param col
      */
-    private void eliminateCandidate(int line, int col) {
-        int digit = solvedDigits[line][col];
-
-        for (int i = 0; i < size; i++) {
-            // Line:
-            possibleValues[line][i][digit - 1] = false;
-            // Column:
-            possibleValues[i][col][digit - 1] = false;
-        }
-        // Block:
-        int blockLine = line / 3;
-        int blockCol = col / 3;
-        int blockSize = (int) Math.sqrt(size);
-        for (int i = blockSize * blockLine; i < blockSize * blockLine + blockSize; i++) {
-            for (int j = blockSize * blockCol; j < blockSize * blockCol + blockSize; j++) {
-                possibleValues[i][j][digit - 1] = false;
-            }
-        }
+    private void eliminateCandidates(int line, int col) {
+        candidates.restrict(line * size + col);
     }
 
     /**
@@ -523,81 +1365,34 @@ public class Grid {
      * @param col
      */
     private void validateOnlyCandidate(int line, int col) {
-        if (solvedDigits[line][col] == 0) {
-            // Count the candidates
-            int nbCandidates = 0;
-            int greatestCandidateValue = 0; // The last candidate will be stored here.
-
-            for (int i = 0; i < 9; i++) {
-                if (possibleValues[line][col][i] == true) {
-                    nbCandidates++;
-                    greatestCandidateValue = i + 1;
-                }
-            }
-            if (nbCandidates == 1) {
-                // Elect that candidate.
-                solvedDigits[line][col] = greatestCandidateValue;
+        int cell = line * size + col;
+        if (solvedDigits[line][col] == 0 && candidates.count(cell) == 1) {
+            // Elect that candidate.
+            int digit = candidates.firstCandidate(cell);
+            setDigit(line, col, digit);
+            if (listener != null) {
+                listener.digitFound(line, col, digit, Technique.NAKED_SINGLE);
             }
         }
     }
 
     /**
-     * Test if a given digit may be positioned somewhere else in the same
-     * line/col/block, or if (line,col) is the only possible position.
+     * Elect a digit in the only square of the house where it is still a
+     * candidate.
      *
-     * @param candidate the digit we test (1->9)
-     * @param line
-     * @param col
-     * @return true when there is at least one set (i.e. line, column or block)
-     * where the digit has only one place to go, even though there might be two
-     * available positions in another set.
+     * @param candidate the digit (1->size)
+     * @param house the house index (lines, then columns, then blocks)
      */
-    private boolean candidateHasOnlyOnePlaceToGo(int candidate, int line, int col) {
-
-        int nbAvailablePositions;
-
-        // Test the line.
-        nbAvailablePositions = 0;
-        for (int otherCol = 0; otherCol < size; otherCol++) {
-            if (possibleValues[line][otherCol][candidate - 1]) {
-                nbAvailablePositions++;
-            }
-        }
-        if (nbAvailablePositions == 1) {
-            // Candidate has only one possible position in this line; it is solved.
-            return true;
-        }
-
-        // Test the column.
-        nbAvailablePositions = 0;
-        for (int otherLine = 0; otherLine < size; otherLine++) {
-            if (possibleValues[otherLine][col][candidate - 1]) {
-                nbAvailablePositions++;
-            }
-        }
-        if (nbAvailablePositions == 1) {
-            // Candidate has only one possible position in this line; it is solved.
-            return true;
-        }
-
-        // Test the block
-        nbAvailablePositions = 0;
-        int blockLine = line / 3;
-        int blockCol = col / 3;
-        int blockSize = (int) Math.sqrt(size);
-        for (int i = blockSize * blockLine; i < blockSize * blockLine + blockSize; i++) {
-            for (int j = blockSize * blockCol; j < blockSize * blockCol + blockSize; j++) {
-                if (possibleValues[i][j][candidate - 1]) {
-                    nbAvailablePositions++;
+    private void electInHouse(int candidate, int house) {
+        for (int i = 0; i < size; i++) {
+            int cell = candidates.getHouseCell(house, i);
+            if (candidates.isCandidate(cell, candidate)) {
+                setDigit(cell / size, cell % size, candidate);
+                if (listener != null) {
+                    listener.digitFound(cell / size, cell % size, candidate, Technique.HIDDEN_SINGLE);
                 }
+                return;
             }
         }
-        if (nbAvailablePositions == 1) {
-            // Candidate has only one possible position in this block; it is solved.
-            return true;
-        }
-
-        // Candidate has at least two possible places in both the line, the column and the block; no way to tell yet.
-        return false;
     }
 }
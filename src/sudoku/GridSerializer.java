@@ -0,0 +1,239 @@
+/**
+ * This file represents the conversion of grids into bytes.
+ */
+package sudoku;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Write grids as ASCII text into a reusable byte buffer, in three formats:
+ * one line of symbols (see Grid.symbolOf()), a board with the blocks
+ * separated, or a board that shows the candidates of the empty squares. The
+ * buffer only grows, so writing many grids allocates nothing once it is large
+ * enough; the bytes are then written to a stream or a channel in one call.
+ *
+ * A serializer is meant for one thread.
+ *
+ * @author arthurmanoha
+ */
+public class GridSerializer {
+
+    private byte[] buffer;
+    private int length;
+
+    // View of the buffer for the channels, made again when the buffer grows.
+    private ByteBuffer view;
+
+    public GridSerializer() {
+        this(1 << 12);
+    }
+
+    /**
+     * @param capacity the initial size of the buffer, in bytes
+     */
+    public GridSerializer(int capacity) {
+        buffer = new byte[Math.max(16, capacity)];
+        view = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Forget the bytes written, keeping the buffer.
+     */
+    public void reset() {
+        length = 0;
+    }
+
+    /**
+     * @return the buffer; its first getLength() bytes are the text written.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    private void ensureRoom(int nbBytes) {
+        if (length + nbBytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, length + nbBytes));
+            view = ByteBuffer.wrap(buffer);
+        }
+    }
+
+    public GridSerializer append(char c) {
+        ensureRoom(1);
+        buffer[length++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * @param text ASCII text
+     */
+    public GridSerializer append(CharSequence text) {
+        int n = text.length();
+        ensureRoom(n);
+        for (int i = 0; i < n; i++) {
+            buffer[length++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * Write a number in decimal, without going through a String.
+     */
+    public GridSerializer append(long value) {
+        ensureRoom(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+        }
+        // The digits come last first; they are reversed afterwards.
+        int first = length;
+        do {
+            buffer[length++] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        for (int i = first, j = length - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+        return this;
+    }
+
+    public GridSerializer newLine() {
+        return append('\n');
+    }
+
+    /**
+     * Write the grid as one line of symbols, '0' for the empty squares,
+     * without the end of line.
+     */
+    public GridSerializer appendLine(Grid grid) {
+        int size = grid.getSize();
+        ensureRoom(size * size);
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                buffer[length++] = (byte) Grid.symbolOf(grid.getDigit(line, col));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Write one value per square, line after line, as one line of symbols,
+     * without the end of line.
+     *
+     * @param digits 0 for an empty square
+     */
+    public GridSerializer appendLine(int[] digits) {
+        ensureRoom(digits.length);
+        for (int digit : digits) {
+            buffer[length++] = (byte) Grid.symbolOf(digit);
+        }
+        return this;
+    }
+
+    /**
+     * Write the grid as a board, one line of text per line of the grid, '-'
+     * for the empty squares and a space after each block.
+     */
+    public GridSerializer appendBoard(Grid grid) {
+        int size = grid.getSize();
+        int blockSize = (int) Math.round(Math.sqrt(size));
+        ensureRoom(size * (size + blockSize + 1));
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                int digit = grid.getDigit(line, col);
+                buffer[length++] = (byte) (digit == 0 ? '-' : Grid.symbolOf(digit));
+                if ((col + 1) % blockSize == 0) {
+                    buffer[length++] = ' ';
+                }
+            }
+            buffer[length++] = '\n';
+        }
+        return this;
+    }
+
+    /**
+     * Write the grid as a board where each square is 'size' characters wide:
+     * a found digit shows as "<d>", an empty square shows its candidates, '-'
+     * for the digits no longer allowed. The blocks are separated by "||" and
+     * by lines of dashes.
+     */
+    public GridSerializer appendCandidates(Grid grid) {
+        int size = grid.getSize();
+        int blockSize = (int) Math.round(Math.sqrt(size));
+        int paddingLeft = Math.max(0, (size - 3) / 2);
+        int paddingRight = Math.max(0, size - 3 - paddingLeft);
+        int separator = size * size + size + 3 * blockSize;
+        ensureRoom(size * (size * (Math.max(size, 3) + 4) + 1) + blockSize * (separator + 1));
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                int digit = grid.getDigit(line, col);
+                if (digit != 0) {
+                    fill(' ', paddingLeft);
+                    buffer[length++] = '<';
+                    buffer[length++] = (byte) Grid.symbolOf(digit);
+                    buffer[length++] = '>';
+                    fill(' ', paddingRight);
+                } else {
+                    int mask = grid.getCandidateMask(line, col);
+                    for (int k = 0; k < size; k++) {
+                        buffer[length++] = (byte) ((mask & (1 << k)) != 0 ? Grid.symbolOf(k + 1) : '-');
+                    }
+                }
+                if ((col + 1) % blockSize == 0) {
+                    buffer[length++] = ' ';
+                    buffer[length++] = '|';
+                    buffer[length++] = '|';
+                }
+                buffer[length++] = ' ';
+            }
+            buffer[length++] = '\n';
+            if ((line + 1) % blockSize == 0) {
+                fill('-', separator);
+                buffer[length++] = '\n';
+            }
+        }
+        return this;
+    }
+
+    private void fill(char c, int count) {
+        Arrays.fill(buffer, length, length + count, (byte) c);
+        length += count;
+    }
+
+    /**
+     * Write the bytes to a stream, and forget them.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+
+    /**
+     * Write the bytes to a channel, e.g. a FileChannel, and forget them.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        view.clear();
+        view.limit(length);
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+        length = 0;
+    }
+
+    /**
+     * @return the text written, e.g. for tests or logs; allocates.
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * This file represents a saved state of a grid.
+ */
+package sudoku;
+
+/**
+ * The whole state of a Grid at one moment: its digits, which of them were
+ * given, and its candidates. Everything is held in one flat array, so
+ * Grid.save() and Grid.restore() are a few array copies and allocate
+ * nothing; a state is meant to be reused, e.g. one per level of a search.
+ *
+ * @author arthurmanoha
+ */
+public class GridState {
+
+    private final int size;
+
+    // The digits, line after line, negative for the given ones; then the
+    // candidates (see Candidates.save()).
+    final int[] values;
+
+    GridState(int size, int length) {
+        this.size = size;
+        this.values = new int[length];
+    }
+
+    /**
+     * @return the size of the grids whose state this can hold.
+     */
+    public int getSize() {
+        return size;
+    }
+}
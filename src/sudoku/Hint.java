@@ -0,0 +1,46 @@
+/**
+ * This file represents a hint given to a player.
+ */
+package sudoku;
+
+/**
+ * The next digit that can be found by logic, and the hardest technique needed
+ * to find it.
+ *
+ * @author arthurmanoha
+ */
+public class Hint {
+
+    private final int line;
+    private final int col;
+    private final int digit;
+    private final Technique technique;
+
+    Hint(int line, int col, int digit, Technique technique) {
+        this.line = line;
+        this.col = col;
+        this.digit = digit;
+        this.technique = technique;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    public int getDigit() {
+        return digit;
+    }
+
+    public Technique getTechnique() {
+        return technique;
+    }
+
+    @Override
+    public String toString() {
+        return digit + " at (" + line + ", " + col + "), " + technique;
+    }
+}
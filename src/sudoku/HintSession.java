@@ -0,0 +1,457 @@
+/**
+ * This file represents the state of a grid being solved by a player.
+ */
+package sudoku;
+
+/**
+ * A grid being filled by a player, kept between the player's moves. The
+ * player may place any digit in a square that was not given, even one that
+ * breaks a rule, and erase it later.
+ *
+ * The session counts how many times each digit appears in each line, column
+ * and block. A placement or an erasure only updates the counts of its three
+ * houses, so the candidates of a square, the conflicts and the singles are
+ * always those of the digits in place: erasing a digit gives back the
+ * candidates it had removed. The next hint is found among the singles first;
+ * only when there is none, the rules and the techniques of
+ * Grid.solveLogically() are run, up to the first digit they find. The hint is
+ * kept until the next placement or erasure.
+ *
+ * For the techniques, the session keeps its own Candidates, Propagator and
+ * AdvancedRules. Each move updates the candidates of its square and of its
+ * peers only; a move that makes or leaves a conflict marks them stale, and
+ * they are rebuilt on the next search, since no hint is given while there
+ * is a conflict anyway. A search works from a saved copy of the candidates,
+ * brought back afterwards.
+ *
+ * The methods of a session may be called from several threads.
+ *
+ * @author arthurmanoha
+ */
+public class HintSession {
+
+    // Grid of each thread, for reading puzzles.
+    private static final ThreadLocal<Grid> SCRATCH = ThreadLocal.withInitial(Grid::new);
+
+    private final int size;
+    private final int blockSize;
+    private final int allDigits;
+
+    // The digit in each square, 0 for empty, and the squares given.
+    private final int[] digits;
+    private final boolean[] given;
+
+    // Number of times each digit is in each house: house * (size + 1) + digit.
+    // Houses are the lines, then the columns, then the blocks.
+    private final int[] counts;
+    // Digits present in each house.
+    private final int[] used;
+    // Number of (house, digit) pairs with the digit more than once.
+    private int nbDuplicates;
+    private int nbFilled;
+
+    // Answer of nextHint() since the last move, when hintKnown.
+    private Hint hint;
+    private boolean hintKnown;
+
+    // The candidates of the digits in place, for the techniques; see
+    // findWithTechniques(). Not up to date when candidatesStale.
+    private final Candidates candidates;
+    private boolean candidatesStale;
+    private final int[] changedPeers;
+    // The digits seen by the propagator, a copy of 'digits' during a search.
+    private final int[] searchDigits;
+    private final Propagator propagator;
+    private final AdvancedRules techniques;
+    // The candidates before the search, brought back after it.
+    private final int[] savedCandidates;
+
+    // Hint of the search in progress, and the hardest technique that removed
+    // a candidate so far.
+    private Hint found;
+    private Technique hardest;
+
+    // Last use, in System.nanoTime(); see HintSessions.
+    private volatile long lastAccess = System.nanoTime();
+
+    /**
+     * @param puzzle in any format read by Grid.initGrid()
+     * @throws IllegalArgumentException when the text is not a puzzle.
+     */
+    public HintSession(String puzzle) {
+        Grid grid = scratchFor(Grid.sizeOf(puzzle));
+        grid.initGrid(puzzle);
+        size = grid.getSize();
+        blockSize = (int) Math.round(Math.sqrt(size));
+        allDigits = (1 << size) - 1;
+        digits = new int[size * size];
+        given = new boolean[size * size];
+        counts = new int[3 * size * (size + 1)];
+        used = new int[3 * size];
+        candidates = new Candidates(size);
+        changedPeers = new int[candidates.getNbPeers()];
+        searchDigits = new int[size * size];
+        propagator = new Propagator(candidates, searchDigits);
+        propagator.setListener(new SolveListener() {
+            @Override
+            public void candidateRemoved(int line, int col, int digit, Technique technique) {
+                if (technique.compareTo(hardest) > 0) {
+                    hardest = technique;
+                }
+            }
+
+            @Override
+            public void digitFound(int line, int col, int digit, Technique technique) {
+                if (found == null) {
+                    found = new Hint(line, col, digit, technique.compareTo(hardest) > 0 ? technique : hardest);
+                }
+            }
+        });
+        techniques = new AdvancedRules(candidates, propagator);
+        savedCandidates = new int[candidates.getStateLength()];
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                int digit = grid.getDigit(line, col);
+                if (digit != 0) {
+                    given[line * size + col] = true;
+                    add(line, col, digit);
+                }
+            }
+        }
+    }
+
+    private static Grid scratchFor(int size) {
+        Grid grid = SCRATCH.get();
+        if (grid.getSize() != size) {
+            grid = new Grid(size);
+            SCRATCH.set(grid);
+        }
+        return grid;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return an estimate of the memory held by the session, in bytes.
+     */
+    long getFootprint() {
+        // The candidates and their saved copy, and the queues of the
+        // propagator; the tables of Candidates are shared by all sessions.
+        long search = 8L * candidates.getStateLength() + 8L * digits.length
+                + 4L * changedPeers.length + 36L * size;
+        return 64 + 4L * digits.length + given.length + 4L * counts.length + 4L * used.length + search;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch() {
+        lastAccess = System.nanoTime();
+    }
+
+    public synchronized int getDigit(int line, int col) {
+        return digits[cellOf(line, col)];
+    }
+
+    public boolean isGiven(int line, int col) {
+        return given[cellOf(line, col)];
+    }
+
+    /**
+     * Put a digit in a square, replacing the digit already there.
+     *
+     * @param digit 1 to size
+     * @return false when the square was given; it then keeps its digit.
+     * @throws IllegalArgumentException when the square or the digit is out
+     * of the grid.
+     */
+    public synchronized boolean place(int line, int col, int digit) {
+        int cell = cellOf(line, col);
+        if (digit < 1 || digit > size) {
+            throw new IllegalArgumentException("Invalid digit " + digit);
+        }
+        if (given[cell]) {
+            return false;
+        }
+        if (digits[cell] != 0) {
+            remove(line, col, digits[cell]);
+        }
+        add(line, col, digit);
+        return true;
+    }
+
+    /**
+     * Empty a square.
+     *
+     * @return false when the square was given; it then keeps its digit.
+     */
+    public synchronized boolean erase(int line, int col) {
+        int cell = cellOf(line, col);
+        if (given[cell]) {
+            return false;
+        }
+        if (digits[cell] != 0) {
+            remove(line, col, digits[cell]);
+        }
+        return true;
+    }
+
+    private int cellOf(int line, int col) {
+        if (line < 0 || line >= size || col < 0 || col >= size) {
+            throw new IllegalArgumentException("Square (" + line + ", " + col + ") out of the grid");
+        }
+        return line * size + col;
+    }
+
+    private int blockOf(int line, int col) {
+        return (line / blockSize) * blockSize + col / blockSize;
+    }
+
+    private void add(int line, int col, int digit) {
+        hintKnown = false;
+        int cell = line * size + col;
+        digits[cell] = digit;
+        nbFilled++;
+        count(line, digit, 1);
+        count(size + col, digit, 1);
+        count(2 * size + blockOf(line, col), digit, 1);
+        if (nbDuplicates > 0) {
+            candidatesStale = true;
+        } else if (!candidatesStale) {
+            candidates.place(cell, digit);
+            candidates.eliminateFromPeers(cell, digit, changedPeers);
+        }
+    }
+
+    private void remove(int line, int col, int digit) {
+        hintKnown = false;
+        int cell = line * size + col;
+        boolean hadDuplicates = nbDuplicates > 0;
+        digits[cell] = 0;
+        nbFilled--;
+        count(line, digit, -1);
+        count(size + col, digit, -1);
+        count(2 * size + blockOf(line, col), digit, -1);
+        if (hadDuplicates) {
+            candidatesStale = true;
+        } else if (!candidatesStale) {
+            candidates.unplace(cell, digit);
+            for (int i = 0; i < candidates.getNbPeers(); i++) {
+                int peer = candidates.getPeer(cell, i);
+                if (digits[peer] == 0) {
+                    candidates.allowUnused(peer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the candidates again from the digits in place.
+     */
+    private void rebuildCandidates() {
+        candidates.reset();
+        for (int cell = 0; cell < digits.length; cell++) {
+            if (digits[cell] != 0) {
+                candidates.place(cell, digits[cell]);
+            }
+        }
+        for (int cell = 0; cell < digits.length; cell++) {
+            if (digits[cell] == 0) {
+                candidates.restrict(cell);
+            }
+        }
+        candidatesStale = false;
+    }
+
+    /**
+     * Add 'delta' to the count of a digit in a house.
+     */
+    private void count(int house, int digit, int delta) {
+        int index = house * (size + 1) + digit;
+        int before = counts[index];
+        int after = before + delta;
+        counts[index] = after;
+        if (after > 1 && before <= 1) {
+            nbDuplicates++;
+        } else if (after <= 1 && before > 1) {
+            nbDuplicates--;
+        }
+        if (after > 0) {
+            used[house] |= 1 << (digit - 1);
+        } else {
+            used[house] &= ~(1 << (digit - 1));
+        }
+    }
+
+    /**
+     * @return the digits that may go in a square: those not yet in its line,
+     * column or block; 0 for a square that holds a digit. Bit k stands for
+     * the digit k+1.
+     */
+    public synchronized int getCandidates(int line, int col) {
+        return digits[cellOf(line, col)] != 0 ? 0 : allowed(line, col);
+    }
+
+    private int allowed(int line, int col) {
+        return allDigits & ~(used[line] | used[size + col] | used[2 * size + blockOf(line, col)]);
+    }
+
+    /**
+     * @return true when some digit is twice in a line, column or block.
+     */
+    public synchronized boolean hasConflicts() {
+        return nbDuplicates > 0;
+    }
+
+    /**
+     * @return true when the digit of the square is also in its line, column
+     * or block.
+     */
+    public synchronized boolean isInConflict(int line, int col) {
+        int digit = digits[cellOf(line, col)];
+        return digit != 0 && (counts[line * (size + 1) + digit] > 1
+                || counts[(size + col) * (size + 1) + digit] > 1
+                || counts[(2 * size + blockOf(line, col)) * (size + 1) + digit] > 1);
+    }
+
+    /**
+     * Find the squares in conflict.
+     *
+     * @param dest receives the squares, as line * size + col; size * size
+     * entries are enough.
+     * @return the number of squares written.
+     */
+    public synchronized int getConflicts(int[] dest) {
+        if (nbDuplicates == 0) {
+            return 0;
+        }
+        int n = 0;
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                if (isInConflict(line, col)) {
+                    dest[n] = line * size + col;
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return true when every square holds a digit, without conflict.
+     */
+    public synchronized boolean isSolved() {
+        return nbFilled == size * size && nbDuplicates == 0;
+    }
+
+    /**
+     * Find a digit that logic places next.
+     *
+     * @return the hint, or null when the grid has conflicts, is full, or
+     * needs a guess.
+     */
+    public synchronized Hint nextHint() {
+        if (nbDuplicates > 0 || nbFilled == size * size) {
+            return null;
+        }
+        if (!hintKnown) {
+            hint = findNakedSingle();
+            if (hint == null) {
+                hint = findHiddenSingle();
+            }
+            if (hint == null) {
+                hint = findWithTechniques();
+            }
+            hintKnown = true;
+        }
+        return hint;
+    }
+
+    private Hint findNakedSingle() {
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                if (digits[line * size + col] == 0) {
+                    int mask = allowed(line, col);
+                    if (Integer.bitCount(mask) == 1) {
+                        return new Hint(line, col, Integer.numberOfTrailingZeros(mask) + 1, Technique.NAKED_SINGLE);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private Hint findHiddenSingle() {
+        for (int house = 0; house < 3 * size; house++) {
+            // Digits allowed in at least one square, and in two or more.
+            int once = 0;
+            int twice = 0;
+            for (int i = 0; i < size; i++) {
+                int cell = houseCell(house, i);
+                if (digits[cell] == 0) {
+                    int mask = allowed(cell / size, cell % size);
+                    twice |= once & mask;
+                    once |= mask;
+                }
+            }
+            int singles = once & ~twice;
+            if (singles != 0) {
+                int bit = singles & -singles;
+                for (int i = 0; i < size; i++) {
+                    int cell = houseCell(house, i);
+                    if (digits[cell] == 0 && (allowed(cell / size, cell % size) & bit) != 0) {
+                        return new Hint(cell / size, cell % size, Integer.numberOfTrailingZeros(bit) + 1,
+                                Technique.HIDDEN_SINGLE);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the i-th square of a house.
+     */
+    private int houseCell(int house, int i) {
+        if (house < size) {
+            return house * size + i;
+        } else if (house < 2 * size) {
+            return i * size + house - size;
+        }
+        int block = house - 2 * size;
+        return ((block / blockSize) * blockSize + i / blockSize) * size
+                + (block % blockSize) * blockSize + i % blockSize;
+    }
+
+    /**
+     * Run the rules and the techniques on the candidates of the session until
+     * they find a digit, and keep the first one, with the hardest technique
+     * used until then. The candidates are brought back afterwards.
+     */
+    private Hint findWithTechniques() {
+        if (candidatesStale) {
+            rebuildCandidates();
+        }
+        candidates.save(savedCandidates, 0);
+        System.arraycopy(digits, 0, searchDigits, 0, digits.length);
+        found = null;
+        hardest = Technique.NAKED_SINGLE;
+        // As Grid.applyRulesUntilDigit().
+        boolean consistent = propagator.start();
+        while (consistent && found == null) {
+            if (!propagator.hasWork()) {
+                consistent = techniques.apply();
+                if (!consistent || !propagator.hasWork()) {
+                    break;
+                }
+            }
+            consistent = propagator.round();
+        }
+        propagator.clear();
+        candidates.restore(savedCandidates, 0);
+        return found;
+    }
+}
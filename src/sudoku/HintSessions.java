@@ -0,0 +1,144 @@
+/**
+ * This file represents the hint sessions of many players.
+ */
+package sudoku;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The open HintSessions, by number. A session is dropped when it has not been
+ * used for the idle timeout, or, when the sessions take more memory than
+ * allowed, from the least recently used one. Safe to share between threads.
+ *
+ * @author arthurmanoha
+ */
+public class HintSessions {
+
+    private final long maxBytes;
+    private final long idleNanos;
+
+    // The sessions by number, in order of last use.
+    private final LinkedHashMap<Long, HintSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private long nextId = 1;
+    private long usedBytes;
+    private long nbEvictions;
+
+    /**
+     * @param maxBytes the memory the sessions may take
+     * @param idleTimeout how long an unused session is kept; 0 or less keeps
+     * it until memory is needed.
+     */
+    public HintSessions(long maxBytes, long idleTimeout, TimeUnit unit) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Memory cap must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.idleNanos = unit.toNanos(idleTimeout);
+    }
+
+    /**
+     * Open a session on a puzzle.
+     *
+     * @param puzzle in any format read by Grid.initGrid()
+     * @return the number of the session.
+     * @throws IllegalArgumentException when the text is not a puzzle, or
+     * when the session alone would take more memory than allowed.
+     */
+    public long open(String puzzle) {
+        HintSession session = new HintSession(puzzle);
+        long footprint = session.getFootprint();
+        if (footprint > maxBytes) {
+            throw new IllegalArgumentException("A session of size " + session.getSize() + " takes "
+                    + footprint + " bytes, more than the cap of " + maxBytes);
+        }
+        synchronized (this) {
+            evictIdle();
+            // Make room before the new session is added, so that it is never
+            // the one dropped.
+            Iterator<HintSession> eldest = sessions.values().iterator();
+            while (usedBytes + footprint > maxBytes && eldest.hasNext()) {
+                usedBytes -= eldest.next().getFootprint();
+                eldest.remove();
+                nbEvictions++;
+            }
+            long id = nextId++;
+            sessions.put(id, session);
+            usedBytes += footprint;
+            return id;
+        }
+    }
+
+    /**
+     * @return the session, or null when it was closed or dropped.
+     */
+    public synchronized HintSession get(long id) {
+        evictIdle();
+        HintSession session = sessions.get(id);
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+
+    /**
+     * @return false when the session was already closed or dropped.
+     */
+    public synchronized boolean close(long id) {
+        HintSession session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        usedBytes -= session.getFootprint();
+        return true;
+    }
+
+    /**
+     * Drop the sessions not used for the idle timeout.
+     *
+     * @return the number of sessions dropped.
+     */
+    public synchronized int evictIdle() {
+        if (idleNanos <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        int n = 0;
+        // The least recently used sessions come first.
+        Iterator<Map.Entry<Long, HintSession>> it = sessions.entrySet().iterator();
+        while (it.hasNext()) {
+            HintSession session = it.next().getValue();
+            if (now - session.getLastAccess() < idleNanos) {
+                break;
+            }
+            usedBytes -= session.getFootprint();
+            it.remove();
+            n++;
+        }
+        nbEvictions += n;
+        return n;
+    }
+
+    public synchronized int getNbSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * @return the estimated memory taken by the open sessions, in bytes.
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getNbEvictions() {
+        return nbEvictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return sessions.size() + " sessions, " + usedBytes + "/" + maxBytes + " bytes, "
+                + nbEvictions + " evicted";
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * This file represents the outcome of the rule-based solver.
+ */
+package sudoku;
+
+/**
+ * What the rule-based solver achieved on a grid.
+ *
+ * @author arthurmanoha
+ */
+public class LogicResult {
+
+    private final boolean solved;
+    private final int digitsFound;
+    private final int passes;
+
+    public LogicResult(boolean solved, int digitsFound, int passes) {
+        this.solved = solved;
+        this.digitsFound = digitsFound;
+        this.passes = passes;
+    }
+
+    /**
+     * @return true when the grid is solved, false when the rules got stuck.
+     */
+    public boolean isSolved() {
+        return solved;
+    }
+
+    /**
+     * @return the number of digits found by the rules.
+     */
+    public int getDigitsFound() {
+        return digitsFound;
+    }
+
+    /**
+     * @return the number of passes of the rules, including the last one that
+     * found nothing.
+     */
+    public int getPasses() {
+        return passes;
+    }
+
+    @Override
+    public String toString() {
+        return (solved ? "solved" : "stuck") + ", " + digitsFound
+                + " digits found in " + passes + " passes";
+    }
+}
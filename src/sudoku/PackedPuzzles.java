@@ -0,0 +1,174 @@
+/**
+ * This file represents the packed binary format of puzzle files.
+ */
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file of puzzles of the same size, with a few bits per square.
+ *
+ * The file starts with a header of HEADER_LENGTH bytes: the magic "SDKP", a
+ * format version, the size of the grids, the number of bits per square, one
+ * unused byte and the number of puzzles, as a long. Then each puzzle takes
+ * recordLength(size) bytes: the values of its squares, line after line, 0 for
+ * an empty square, packed with the most significant bits first. A 9x9 puzzle
+ * uses 4 bits per square, i.e. 41 bytes.
+ *
+ * @author arthurmanoha
+ */
+public class PackedPuzzles {
+
+    public static final int HEADER_LENGTH = 16;
+
+    static final int MAGIC = ('S' << 24) | ('D' << 16) | ('K' << 8) | 'P';
+    static final int VERSION = 1;
+
+    // Offset of the number of puzzles in the header.
+    private static final int COUNT_OFFSET = 8;
+
+    private PackedPuzzles() {
+    }
+
+    /**
+     * @return the number of bits needed for the values 0 to size.
+     */
+    public static int bitsPerCell(int size) {
+        return 32 - Integer.numberOfLeadingZeros(size);
+    }
+
+    /**
+     * @return the number of bytes of one puzzle of the given size.
+     */
+    public static int recordLength(int size) {
+        return (size * size * bitsPerCell(size) + 7) / 8;
+    }
+
+    /**
+     * Pack the values of a puzzle.
+     *
+     * @param digits one value per square
+     * @param record receives recordLength(size) bytes
+     */
+    static void encode(int[] digits, int size, ByteBuffer record) {
+        int bits = bitsPerCell(size);
+        long buffer = 0;
+        int nbBuffered = 0;
+        for (int digit : digits) {
+            buffer = (buffer << bits) | digit;
+            nbBuffered += bits;
+            while (nbBuffered >= 8) {
+                nbBuffered -= 8;
+                record.put((byte) (buffer >>> nbBuffered));
+            }
+        }
+        if (nbBuffered > 0) {
+            record.put((byte) (buffer << (8 - nbBuffered)));
+        }
+    }
+
+    /**
+     * Unpack the values of a puzzle, without any allocation.
+     *
+     * @param buffer holds the puzzle at 'offset'; its position is not used.
+     * @param digits receives one value per square
+     */
+    static void decode(ByteBuffer buffer, int offset, int size, int[] digits) {
+        int bits = bitsPerCell(size);
+        int mask = (1 << bits) - 1;
+        int bitBuffer = 0;
+        int nbBuffered = 0;
+        int position = offset;
+        for (int i = 0; i < digits.length; i++) {
+            while (nbBuffered < bits) {
+                bitBuffer = (bitBuffer << 8) | (buffer.get(position) & 0xFF);
+                position++;
+                nbBuffered += 8;
+            }
+            nbBuffered -= bits;
+            digits[i] = (bitBuffer >>> nbBuffered) & mask;
+        }
+    }
+
+    /**
+     * Convert a text file, one puzzle per line in any format read by
+     * Grid.initGrid(), into a packed file. Empty lines are skipped.
+     *
+     * @param in the puzzles; they must all have the same size.
+     * @param output the packed file, replaced if it exists
+     * @return the number of puzzles written.
+     * @throws IOException when reading or writing fails.
+     * @throws IllegalArgumentException when a line is not a puzzle, or not of
+     * the size of the first one.
+     */
+    public static long convert(BufferedReader in, Path output) throws IOException {
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            Grid grid = null;
+            int[] digits = null;
+            long count = 0;
+            long lineNumber = 0;
+
+            // The header is written again once the number of puzzles is known.
+            channel.write(header(0, 0), 0);
+            channel.position(HEADER_LENGTH);
+
+            String text;
+            while ((text = in.readLine()) != null) {
+                lineNumber++;
+                text = text.trim();
+                if (text.isEmpty()) {
+                    continue;
+                }
+                try {
+                    if (grid == null) {
+                        grid = new Grid(Grid.sizeOf(text));
+                        digits = new int[grid.getSize() * grid.getSize()];
+                    }
+                    grid.initGrid(text);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+                }
+                int size = grid.getSize();
+                for (int i = 0; i < digits.length; i++) {
+                    digits[i] = grid.getDigit(i / size, i % size);
+                }
+                if (buffer.remaining() < recordLength(size)) {
+                    flush(buffer, channel);
+                }
+                encode(digits, size, buffer);
+                count++;
+            }
+            flush(buffer, channel);
+            channel.write(header(grid == null ? 0 : grid.getSize(), count), 0);
+            return count;
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static ByteBuffer header(int size, long count) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC);
+        header.put((byte) VERSION);
+        header.put((byte) size);
+        header.put((byte) bitsPerCell(size));
+        header.put((byte) 0);
+        header.putLong(COUNT_OFFSET, count);
+        header.clear();
+        return header;
+    }
+}
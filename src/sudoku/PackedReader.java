@@ -0,0 +1,132 @@
+/**
+ * This file represents a reader of packed puzzle files.
+ */
+package sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read a file written by PackedPuzzles.convert(), mapped in memory. The file
+ * is mapped in segments of whole puzzles, so that files larger than 2 GB can
+ * be read; any puzzle can be read at any time, by its index.
+ *
+ * Reading a puzzle allocates nothing: it is decoded into an array owned by
+ * the reader, then loaded into the grid. A reader may be shared by several
+ * threads through readDigits(), each with its own array.
+ *
+ * @author arthurmanoha
+ */
+public class PackedReader implements Closeable {
+
+    // Largest segment mapped at once.
+    private static final long MAX_SEGMENT_LENGTH = Integer.MAX_VALUE;
+
+    private final int size;
+    private final long count;
+    private final int recordLength;
+
+    private final long puzzlesPerSegment;
+    private MappedByteBuffer[] segments;
+
+    // Decoded values of the last puzzle read by readInto().
+    private final int[] digits;
+
+    /**
+     * Open and map a packed file.
+     *
+     * @throws IOException when the file cannot be read, or is not a packed
+     * puzzle file.
+     */
+    public PackedReader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileLength = channel.size();
+            if (fileLength < PackedPuzzles.HEADER_LENGTH) {
+                throw new IOException(file + " is too short for a packed puzzle file");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, PackedPuzzles.HEADER_LENGTH);
+            if (header.getInt(0) != PackedPuzzles.MAGIC || header.get(4) != PackedPuzzles.VERSION) {
+                throw new IOException(file + " is not a packed puzzle file");
+            }
+            size = header.get(5);
+            count = header.getLong(8);
+            if (count > 0 && (size < 1 || size > Grid.MAX_SIZE)) {
+                throw new IOException(file + ": unsupported grid size " + size);
+            }
+            recordLength = PackedPuzzles.recordLength(size);
+            if (PackedPuzzles.HEADER_LENGTH + count * recordLength > fileLength) {
+                throw new IOException(file + " is truncated");
+            }
+
+            puzzlesPerSegment = MAX_SEGMENT_LENGTH / Math.max(1, recordLength);
+            int nbSegments = (int) ((count + puzzlesPerSegment - 1) / puzzlesPerSegment);
+            segments = new MappedByteBuffer[nbSegments];
+            for (int s = 0; s < nbSegments; s++) {
+                long first = s * puzzlesPerSegment;
+                long nbPuzzles = Math.min(puzzlesPerSegment, count - first);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        PackedPuzzles.HEADER_LENGTH + first * recordLength, nbPuzzles * recordLength);
+            }
+        }
+        digits = new int[size * size];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of puzzles in the file.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Load a puzzle into a grid, replacing its content.
+     *
+     * @param index the number of the puzzle, from 0
+     * @param grid a grid of the size of the file
+     * @throws IllegalArgumentException when the grid has another size, or the
+     * puzzle is not valid.
+     */
+    public void readInto(long index, Grid grid) {
+        if (grid.getSize() != size) {
+            throw new IllegalArgumentException("Grid of size " + grid.getSize()
+                    + " for puzzles of size " + size);
+        }
+        readDigits(index, digits);
+        grid.initGrid(digits);
+    }
+
+    /**
+     * Decode a puzzle.
+     *
+     * @param index the number of the puzzle, from 0
+     * @param dest receives one value per square, line after line
+     */
+    public void readDigits(long index, int[] dest) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Puzzle " + index + " of " + count);
+        }
+        if (segments == null) {
+            throw new IllegalStateException("Reader closed");
+        }
+        int segment = (int) (index / puzzlesPerSegment);
+        int offset = (int) (index % puzzlesPerSegment) * recordLength;
+        PackedPuzzles.decode(segments[segment], offset, size, dest);
+    }
+
+    /**
+     * Drop the mapped segments; they are unmapped by the garbage collector.
+     */
+    @Override
+    public void close() {
+        segments = null;
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * This file represents a search spread over several threads.
+ */
+package sudoku;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Split the search tree of a grid on its most constrained squares, and search
+ * the subtrees in a fork-join pool. Each subtree is a copy of the solver
+ * state, taken over by the solver of the thread that searches it.
+ *
+ * The pool and the solvers of its threads are created on first use and kept
+ * for the next searches; the threads end by themselves once idle for a
+ * while. The searches of one ParallelSearch must not overlap.
+ *
+ * @author arthurmanoha
+ */
+class ParallelSearch {
+
+    // Subtrees per thread, so that uneven subtrees still keep all threads busy.
+    private static final int SUBTREES_PER_THREAD = 8;
+
+    private final int size;
+    private final int nbThreads;
+
+    // Nodes visited by all the threads in the last search.
+    private final AtomicLong nodes = new AtomicLong();
+
+    // Loads the grid and splits the search tree, in the calling thread.
+    private final PropagationSolver rootSolver;
+    private final int[] rootState;
+
+    // Created on first use.
+    private ForkJoinPool pool;
+    // The solver of each thread of the pool.
+    private final ThreadLocal<PropagationSolver> solvers;
+
+    ParallelSearch(int size, int nbThreads) {
+        this.size = size;
+        this.nbThreads = Math.max(1, nbThreads);
+        this.rootSolver = new PropagationSolver(size);
+        this.rootState = new int[rootSolver.getStateLength()];
+        this.solvers = ThreadLocal.withInitial(() -> new PropagationSolver(size));
+    }
+
+    /**
+     * @return the number of threads worth using for nbThreads: at least one,
+     * and no more than the available processors, since more threads would
+     * only share them.
+     */
+    static int threadsFor(int nbThreads) {
+        return Math.max(1, Math.min(nbThreads, Runtime.getRuntime().availableProcessors()));
+    }
+
+    int getNbThreads() {
+        return nbThreads;
+    }
+
+    long getStep() {
+        return nodes.get();
+    }
+
+    /**
+     * Solve a grid from its candidates, e.g. those left by the rules and the
+     * techniques; the first solution found stops all the other threads.
+     *
+     * @param candidates the candidates of the grid, consistent with its
+     * digits; they are not modified.
+     * @param solvedDigits the digits of the grid, 0 for empty squares; the
+     * solution is written there when one is found.
+     * @param budget the limits of the search, already started, shared by all
+     * the threads: their nodes count together against its node limit, and
+     * its deadline or cancel() stops all of them; null for none.
+     * @return SOLVED; UNSOLVABLE; or why the budget stopped the search. The
+     * grid is only written when SOLVED.
+     * @throws CancellationException when the calling thread is interrupted
+     * while it waits for the other threads.
+     */
+    SolveStatus solve(Candidates candidates, int[][] solvedDigits, SolveBudget budget) {
+        candidates.save(rootState, 0);
+        int offset = candidates.getStateLength();
+        for (int cell = 0; cell < size * size; cell++) {
+            rootState[offset + cell] = solvedDigits[cell / size][cell % size];
+        }
+        rootSolver.importState(rootState);
+        return searchFromRoot(solvedDigits, budget);
+    }
+
+    private SolveStatus searchFromRoot(int[][] solvedDigits, SolveBudget budget) {
+        AtomicReference<SolveStatus> stop = new AtomicReference<>();
+        if (search(solvedDigits, 1, true, budget, stop) > 0) {
+            return SolveStatus.SOLVED;
+        }
+        return stop.get() != null ? stop.get() : SolveStatus.UNSOLVABLE;
+    }
+
+    /**
+     * Solve a grid from its digits, after the rules one, two and three; see
+     * solve(Candidates, int[][], SolveBudget).
+     */
+    SolveStatus solve(int[][] solvedDigits, SolveBudget budget) {
+        if (!rootSolver.loadAndPropagate(solvedDigits)) {
+            return SolveStatus.UNSOLVABLE;
+        }
+        return searchFromRoot(solvedDigits, budget);
+    }
+
+    /**
+     * Count the solutions of a grid, stopping all threads as soon as 'limit'
+     * solutions are found.
+     *
+     * @param solvedDigits the digits of the grid, 0 for empty squares; they
+     * are not modified.
+     * @param limit the number of solutions after which the search stops
+     * @return the number of solutions, at most 'limit'.
+     * @throws CancellationException when the calling thread is interrupted
+     * while it waits for the other threads.
+     */
+    long countSolutions(int[][] solvedDigits, long limit) {
+        if (!rootSolver.loadAndPropagate(solvedDigits)) {
+            return 0;
+        }
+        return search(solvedDigits, limit, false, null, null);
+    }
+
+    /**
+     * Search the subtrees of the state held by rootSolver in parallel. Every
+     * solver checks the shared number of solutions at each node, so the
+     * running tasks stop soon after the limit is reached, and the tasks
+     * started later return at once.
+     *
+     * @param keepSolution when true, the first solution found is written into
+     * solvedDigits.
+     * @param budget the limits of the search, already started; null for none
+     * @param stop receives why the budget stopped the search, when it did
+     * @return the number of solutions, at most 'limit'.
+     */
+    private long search(int[][] solvedDigits, long limit, boolean keepSolution,
+            SolveBudget budget, AtomicReference<SolveStatus> stop) {
+        nodes.set(0);
+        AtomicLong solutions = new AtomicLong();
+        AtomicBoolean solutionKept = new AtomicBoolean();
+        List<int[]> subtrees = split();
+        // Nodes of all the threads, counted against the budget, after those
+        // of the split.
+        AtomicLong budgetNodes = new AtomicLong(nodes.get());
+
+        if (pool == null) {
+            pool = new ForkJoinPool(nbThreads);
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int[] subtree : subtrees) {
+            tasks.add(pool.submit(() -> {
+                if (solutions.get() >= limit || (stop != null && stop.get() != null)) {
+                    return;
+                }
+                PropagationSolver subtreeSolver = solvers.get();
+                subtreeSolver.importState(subtree);
+                if (budget == null) {
+                    subtreeSolver.searchFromHere(limit, solutions);
+                } else {
+                    SolveStatus status = subtreeSolver.searchFromHere(limit, solutions, budget, budgetNodes);
+                    if (status != null) {
+                        stop.compareAndSet(null, status);
+                    }
+                }
+                if (keepSolution && subtreeSolver.getNbSolutions() > 0
+                        && solutionKept.compareAndSet(false, true)) {
+                    subtreeSolver.copyDigits(solvedDigits);
+                }
+                nodes.addAndGet(subtreeSolver.getStep());
+            }));
+        }
+        try {
+            for (ForkJoinTask<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            // The running solvers stop at their next node, and the others
+            // return at once; the pool is free again once they are done.
+            solutions.set(limit);
+            for (ForkJoinTask<?> task : tasks) {
+                task.quietlyJoin();
+            }
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while searching");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return Math.min(solutions.get(), limit);
+    }
+
+    /**
+     * Expand the search tree of rootSolver breadth first, on the most
+     * constrained square of each state, until there are enough subtrees for
+     * all threads. Branches that the rules prove empty are dropped. Each
+     * digit tried counts as a node.
+     *
+     * @return the states at the root of the subtrees.
+     */
+    private List<int[]> split() {
+        int target = nbThreads * SUBTREES_PER_THREAD;
+        ArrayDeque<int[]> frontier = new ArrayDeque<>();
+        int[] root = new int[rootSolver.getStateLength()];
+        rootSolver.exportState(root);
+        frontier.add(root);
+
+        // States that cannot be split any more: full grids.
+        List<int[]> subtrees = new ArrayList<>();
+
+        while (!frontier.isEmpty() && frontier.size() + subtrees.size() < target) {
+            int[] state = frontier.poll();
+            rootSolver.importState(state);
+            int cell = rootSolver.chooseBranchCell();
+            if (cell < 0) {
+                subtrees.add(state);
+                continue;
+            }
+            int mask = rootSolver.getCandidates(cell);
+            while (mask != 0) {
+                int digit = Integer.numberOfTrailingZeros(mask) + 1;
+                mask &= mask - 1;
+                rootSolver.importState(state);
+                nodes.incrementAndGet();
+                if (rootSolver.tryDigit(cell, digit)) {
+                    int[] child = new int[rootSolver.getStateLength()];
+                    rootSolver.exportState(child);
+                    frontier.add(child);
+                }
+            }
+        }
+        subtrees.addAll(frontier);
+        return subtrees;
+    }
+}
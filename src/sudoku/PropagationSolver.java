@@ -0,0 +1,430 @@
+/**
+ * This file represents a backtracking solver that propagates constraints.
+ */
+package sudoku;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backtracking solver that always branches on the most constrained empty
+ * square (minimum remaining values), tries only the digits still allowed in
+ * that square, and applies the rules one, two and three after each placement,
+ * through a Propagator.
+ *
+ * The state of each level of the search is saved in a flat array, so going
+ * back is a single array copy.
+ *
+ * @author arthurmanoha
+ */
+class PropagationSolver {
+
+    private final int size;
+    private final int nbCells;
+
+    private final Candidates candidates;
+    private final Propagator propagator;
+
+    // The digit in each square, 0 for empty; indexed by line * size + col.
+    private final int[] digits;
+
+    // Saved states, one per level of the search: candidates, then digits.
+    private final int stateLength;
+    private final int[] savedStates;
+
+    // Number of nodes visited by the last search, dead ends, and deepest level.
+    private long step;
+    private long nbBacktracks;
+    private int maxDepth;
+
+    // Solutions found by the last search, and when to stop.
+    private long nbSolutions;
+    private long solutionLimit;
+    private AtomicLong sharedSolutions;
+
+    // Limits of the current search, null for none, and why it stopped.
+    private SolveBudget budget;
+    private SolveStatus stopStatus;
+    // Nodes of all the solvers sharing the budget, null when it is not shared,
+    // and the nodes of this solver already added to it.
+    private AtomicLong sharedNodes;
+    private long reportedSteps;
+
+    PropagationSolver(int size) {
+        this.size = size;
+        this.nbCells = size * size;
+        this.candidates = new Candidates(size);
+        this.digits = new int[nbCells];
+        this.propagator = new Propagator(candidates, digits);
+        this.stateLength = candidates.getStateLength() + nbCells;
+        this.savedStates = new int[(nbCells + 1) * stateLength];
+    }
+
+    long getStep() {
+        return step;
+    }
+
+    /**
+     * Write what the last search did.
+     */
+    void fillMetrics(SolveMetrics metrics) {
+        metrics.setSearch(step, nbBacktracks, maxDepth);
+        propagator.fillMetrics(metrics);
+    }
+
+    /**
+     * Solve a grid.
+     *
+     * @param solvedDigits the digits of the grid, 0 for empty squares; the
+     * solution is written there when one is found.
+     * @return true when the grid has a solution, false otherwise.
+     */
+    boolean solve(int[][] solvedDigits) {
+        if (!loadAndPropagate(solvedDigits) || !searchFromHere(1, null)) {
+            return false;
+        }
+        copyDigits(solvedDigits);
+        return true;
+    }
+
+    /**
+     * Solve a grid within a budget.
+     *
+     * @param solvedDigits the digits of the grid, 0 for empty squares
+     * @return SOLVED, with the solution written in the grid; UNSOLVABLE; or
+     * why the search stopped, with the digits deduced before the first guess
+     * written in the grid.
+     */
+    SolveStatus solve(int[][] solvedDigits, SolveBudget budget) {
+        this.budget = budget;
+        stopStatus = null;
+        budget.start();
+        try {
+            if (!loadAndPropagate(solvedDigits)) {
+                return SolveStatus.UNSOLVABLE;
+            }
+            boolean found = searchFromHere(1, null);
+            if (stopStatus != null) {
+                if (step > 1) {
+                    // Back to the state saved before the first guess.
+                    restoreState(savedStates, 0);
+                }
+                copyDigits(solvedDigits);
+                return stopStatus;
+            }
+            if (!found) {
+                return SolveStatus.UNSOLVABLE;
+            }
+            copyDigits(solvedDigits);
+            return SolveStatus.SOLVED;
+        } finally {
+            this.budget = null;
+        }
+    }
+
+    /**
+     * Write the digits of the solver into a grid.
+     */
+    void copyDigits(int[][] solvedDigits) {
+        for (int cell = 0; cell < nbCells; cell++) {
+            solvedDigits[cell / size][cell % size] = digits[cell];
+        }
+    }
+
+    /**
+     * Count the solutions of a grid, stopping as soon as 'limit' solutions
+     * are found.
+     *
+     * @param solvedDigits the digits of the grid, 0 for empty squares; they
+     * are not modified.
+     * @param limit the number of solutions after which the search stops
+     * @return the number of solutions, at most 'limit'.
+     */
+    long countSolutions(int[][] solvedDigits, long limit) {
+        if (!loadAndPropagate(solvedDigits)) {
+            return 0;
+        }
+        searchFromHere(limit, null);
+        return nbSolutions;
+    }
+
+    /**
+     * Tell if a grid has a solution where a square holds another digit than
+     * 'digit'; one search answers for all the other digits at once. Used to
+     * tell if a clue may be removed from a puzzle.
+     *
+     * @param solvedDigits the digits of the grid, where 'cell' is empty; they
+     * are not modified.
+     * @param budget the limits of the search, or null for none
+     * @return true when there is such a solution, or when the budget stopped
+     * the search before it could tell.
+     */
+    boolean hasSolutionWithout(int[][] solvedDigits, int cell, int digit, SolveBudget budget) {
+        if (!loadAndPropagate(solvedDigits)) {
+            return false;
+        }
+        this.budget = budget;
+        stopStatus = null;
+        if (budget != null) {
+            budget.start();
+        }
+        try {
+            boolean found;
+            if (digits[cell] != 0) {
+                // The rules already placed a digit there.
+                found = digits[cell] != digit && searchFromHere(1, null);
+            } else {
+                // No listener is set, so the technique is not reported.
+                found = propagator.eliminate(cell, 1 << (digit - 1), null) && propagator.propagate()
+                        && searchFromHere(1, null);
+            }
+            return found || stopStatus != null;
+        } finally {
+            propagator.clear();
+            this.budget = null;
+        }
+    }
+
+    /**
+     * Load a grid and apply the rules to it, before any search.
+     *
+     * @return false when the grid has no solution.
+     */
+    boolean loadAndPropagate(int[][] solvedDigits) {
+        step = 0;
+        nbBacktracks = 0;
+        maxDepth = 0;
+        nbSolutions = 0;
+        return load(solvedDigits) && propagator.start() && propagator.propagate();
+    }
+
+    /**
+     * Search the solutions from the current state.
+     *
+     * @param limit the number of solutions after which the search stops
+     * @param sharedSolutions when not null, the solutions found by all the
+     * solvers working on the same grid; the limit then applies to it.
+     * @return true when the search stopped because the limit was reached; the
+     * digits then hold the last solution found.
+     */
+    boolean searchFromHere(long limit, AtomicLong sharedSolutions) {
+        this.solutionLimit = limit;
+        this.sharedSolutions = sharedSolutions;
+        return search(0);
+    }
+
+    /**
+     * Search the solutions from the current state, within a budget shared
+     * with the solvers of the other subtrees of the same grid.
+     *
+     * @param budget started by the caller
+     * @param sharedNodes the nodes visited by all the solvers; the node limit
+     * of the budget applies to it. Each solver adds its nodes, and checks the
+     * budget, every SolveBudget.CHECK_INTERVAL nodes only, so the search may
+     * go past the limit by that many nodes per solver.
+     * @return why the budget stopped the search, or null when it did not.
+     */
+    SolveStatus searchFromHere(long limit, AtomicLong sharedSolutions, SolveBudget budget, AtomicLong sharedNodes) {
+        this.budget = budget;
+        this.sharedNodes = sharedNodes;
+        reportedSteps = 0;
+        stopStatus = null;
+        try {
+            searchFromHere(limit, sharedSolutions);
+            return stopStatus;
+        } finally {
+            this.budget = null;
+            this.sharedNodes = null;
+        }
+    }
+
+    long getNbSolutions() {
+        return nbSolutions;
+    }
+
+    /**
+     * @return the square where the search would branch, or -1 when the grid
+     * is full.
+     */
+    int chooseBranchCell() {
+        return findMostConstrainedCell();
+    }
+
+    int getCandidates(int cell) {
+        return candidates.getMask(cell);
+    }
+
+    /**
+     * Put a digit in a square and apply the rules.
+     *
+     * @return false when the grid has no solution left.
+     */
+    boolean tryDigit(int cell, int digit) {
+        if (propagator.place(cell, digit) && propagator.propagate()) {
+            return true;
+        }
+        propagator.clear();
+        return false;
+    }
+
+    /**
+     * @return the number of ints needed by exportState().
+     */
+    int getStateLength() {
+        return stateLength;
+    }
+
+    /**
+     * Copy the whole state, so that another solver can take it over.
+     */
+    void exportState(int[] dest) {
+        saveState(dest, 0);
+    }
+
+    /**
+     * Take over a state copied by exportState().
+     */
+    void importState(int[] src) {
+        restoreState(src, 0);
+        propagator.clear();
+        step = 0;
+        nbBacktracks = 0;
+        maxDepth = 0;
+        nbSolutions = 0;
+    }
+
+    /**
+     * Copy the given digits into the solver.
+     *
+     * @return false when the given digits already break a rule.
+     */
+    private boolean load(int[][] solvedDigits) {
+        candidates.reset();
+        for (int cell = 0; cell < nbCells; cell++) {
+            int digit = solvedDigits[cell / size][cell % size];
+            digits[cell] = digit;
+            if (digit != 0) {
+                if (!candidates.canPlace(cell, digit)) {
+                    return false;
+                }
+                candidates.place(cell, digit);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Search the solutions from the current state.
+     *
+     * @param depth the level of the search, used to save the state
+     * @return true when enough solutions were found; the digits then hold the
+     * last one.
+     */
+    private boolean search(int depth) {
+
+        step++;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+
+        if (budget != null) {
+            stopStatus = sharedNodes != null ? checkSharedBudget() : budget.check(step);
+            if (stopStatus != null) {
+                return true;
+            }
+        }
+
+        if (sharedSolutions != null && sharedSolutions.get() >= solutionLimit) {
+            // Other solvers already found enough solutions.
+            return true;
+        }
+
+        int cell = findMostConstrainedCell();
+        if (cell < 0) {
+            // No empty square left.
+            return foundSolution();
+        }
+        int mask = candidates.getMask(cell);
+        if (mask == 0) {
+            return false;
+        }
+
+        int offset = depth * stateLength;
+        saveState(savedStates, offset);
+        while (mask != 0) {
+            int digit = Integer.numberOfTrailingZeros(mask) + 1;
+            mask &= mask - 1;
+
+            if (propagator.place(cell, digit) && propagator.propagate()
+                    && search(depth + 1)) {
+                return true;
+            }
+            restoreState(savedStates, offset);
+            propagator.clear();
+            nbBacktracks++;
+        }
+        // No candidate fits; the caller has to go back.
+        return false;
+    }
+
+    /**
+     * Check the budget shared with the other solvers, every CHECK_INTERVAL
+     * nodes: the nodes visited since the last check are added to the shared
+     * count at once, so the threads seldom touch the same counter.
+     *
+     * @return the reason to stop, or null to go on.
+     */
+    private SolveStatus checkSharedBudget() {
+        if ((step & (SolveBudget.CHECK_INTERVAL - 1)) != 1) {
+            return null;
+        }
+        long nodes = sharedNodes.addAndGet(step - reportedSteps);
+        reportedSteps = step;
+        return budget.checkAll(nodes);
+    }
+
+    /**
+     * Count the solution held by the digits.
+     *
+     * @return true when the search must stop.
+     */
+    private boolean foundSolution() {
+        nbSolutions++;
+        if (sharedSolutions != null) {
+            return sharedSolutions.incrementAndGet() >= solutionLimit;
+        }
+        return nbSolutions >= solutionLimit;
+    }
+
+    /**
+     * Find the empty square with the fewest candidates.
+     *
+     * @return the square index, or -1 when the grid is full.
+     */
+    private int findMostConstrainedCell() {
+        int bestCell = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < nbCells; cell++) {
+            if (digits[cell] == 0) {
+                int count = candidates.count(cell);
+                if (count < bestCount) {
+                    bestCount = count;
+                    bestCell = cell;
+                    if (count <= 1) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestCell;
+    }
+
+    private void saveState(int[] dest, int offset) {
+        candidates.save(dest, offset);
+        System.arraycopy(digits, 0, dest, offset + candidates.getStateLength(), nbCells);
+    }
+
+    private void restoreState(int[] src, int offset) {
+        candidates.restore(src, offset);
+        System.arraycopy(src, offset + candidates.getStateLength(), digits, 0, nbCells);
+    }
+}
@@ -0,0 +1,333 @@
+/**
+ * This file represents the event-driven engine that applies the rules.
+ */
+package sudoku;
+
+/**
+ * Apply the rules one, two and three only where something changed.
+ *
+ * Each placed digit is queued; processing it removes the digit from the
+ * candidates of its peers (rule one), and a peer left with one candidate is
+ * elected at once (rule two). Each house where a candidate was removed is
+ * marked together with the digits concerned; checking a marked house looks
+ * for hidden singles among those digits only (rule three). The work done
+ * therefore follows the number of changes, not the size of the grid.
+ *
+ * @author arthurmanoha
+ */
+class Propagator {
+
+    private final int size;
+    private final int nbCells;
+    private final Candidates candidates;
+
+    // The digit in each square, 0 for empty; shared with the owner.
+    private final int[] digits;
+
+    // Squares whose digit has not yet been removed from their peers.
+    private final int[] placedQueue;
+    private int nbPlaced;
+
+    // The peers that lost a candidate, filled by Candidates.eliminateFromPeers().
+    private final int[] changedPeers;
+
+    // Houses to check for hidden singles, with the digits that lost a place
+    // in each of them since the last check (0 when the house is not marked).
+    private final int[] dirtyDigits;
+    private final int[] dirtyHouses;
+    private int nbDirtyHouses;
+    private final int[] housesToCheck;
+
+    // Receives each digit found; may be null.
+    private SolveListener listener;
+
+    // Work of each rule since the last start(): candidates removed, naked and
+    // hidden singles elected.
+    private long nbEliminated;
+    private long nbNakedSingles;
+    private long nbHiddenSingles;
+
+    Propagator(Candidates candidates, int[] digits) {
+        this.size = candidates.getSize();
+        this.nbCells = size * size;
+        this.candidates = candidates;
+        this.digits = digits;
+        this.placedQueue = new int[nbCells];
+        this.changedPeers = new int[candidates.getNbPeers()];
+        this.dirtyDigits = new int[candidates.getNbHouses()];
+        this.dirtyHouses = new int[candidates.getNbHouses()];
+        this.housesToCheck = new int[candidates.getNbHouses()];
+    }
+
+    void setListener(SolveListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Prepare the first round, when the digits already in the grid have not
+     * been removed from the candidates yet: every empty square is restricted,
+     * its single candidate is elected, and every house is marked.
+     *
+     * @return false when an empty square has no candidate left.
+     */
+    boolean start() {
+        clear();
+        nbEliminated = 0;
+        nbNakedSingles = 0;
+        nbHiddenSingles = 0;
+        for (int cell = 0; cell < nbCells; cell++) {
+            if (digits[cell] == 0) {
+                candidates.restrict(cell);
+                if (candidates.getMask(cell) == 0) {
+                    return false;
+                }
+            }
+        }
+        for (int house = 0; house < candidates.getNbHouses(); house++) {
+            markDirty(house, candidates.getAllDigits());
+        }
+        for (int cell = 0; cell < nbCells; cell++) {
+            if (digits[cell] == 0 && candidates.count(cell) == 1) {
+                if (!elect(cell, candidates.firstCandidate(cell), Technique.NAKED_SINGLE)) {
+                    clear();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drop the pending work, e.g. after a contradiction or when the state is
+     * restored.
+     */
+    void clear() {
+        nbPlaced = 0;
+        for (int i = 0; i < nbDirtyHouses; i++) {
+            dirtyDigits[dirtyHouses[i]] = 0;
+        }
+        nbDirtyHouses = 0;
+    }
+
+    /**
+     * Write the work of each rule since the last start().
+     */
+    void fillMetrics(SolveMetrics metrics) {
+        metrics.setRules(nbEliminated, nbNakedSingles, nbHiddenSingles);
+    }
+
+    boolean hasWork() {
+        return nbPlaced > 0 || nbDirtyHouses > 0;
+    }
+
+    /**
+     * Put a digit in a square and queue its consequences.
+     *
+     * @return false when the digit is already used in the line, column or
+     * block.
+     */
+    boolean place(int cell, int digit) {
+        if (!candidates.canPlace(cell, digit)) {
+            return false;
+        }
+        // The other candidates of the square lose a place in its houses.
+        int lost = candidates.getMask(cell) & ~(1 << (digit - 1));
+        digits[cell] = digit;
+        candidates.place(cell, digit);
+        placedQueue[nbPlaced] = cell;
+        nbPlaced++;
+        if (lost != 0) {
+            markHousesDirty(cell, lost);
+        }
+        return true;
+    }
+
+    /**
+     * Apply the rules until nothing changes.
+     *
+     * @return false when the grid has no solution left.
+     */
+    boolean propagate() {
+        while (true) {
+            if (nbPlaced > 0) {
+                if (!removeFromPeers()) {
+                    clear();
+                    return false;
+                }
+            } else if (nbDirtyHouses > 0) {
+                nbDirtyHouses--;
+                int house = dirtyHouses[nbDirtyHouses];
+                int digitsToCheck = dirtyDigits[house];
+                dirtyDigits[house] = 0;
+                if (!checkHouse(house, digitsToCheck)) {
+                    clear();
+                    return false;
+                }
+            } else {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * One pass of the rules: remove all queued digits from their peers, then
+     * check each house marked so far. Houses marked during the checks wait
+     * for the next pass.
+     *
+     * @return false when the grid has no solution left.
+     */
+    boolean round() {
+
+        while (nbPlaced > 0) {
+            if (!removeFromPeers()) {
+                clear();
+                return false;
+            }
+        }
+
+        int nbToCheck = nbDirtyHouses;
+        System.arraycopy(dirtyHouses, 0, housesToCheck, 0, nbToCheck);
+        nbDirtyHouses = 0;
+        for (int i = 0; i < nbToCheck; i++) {
+            int house = housesToCheck[i];
+            int digitsToCheck = dirtyDigits[house];
+            dirtyDigits[house] = 0;
+            if (!checkHouse(house, digitsToCheck)) {
+                // The houses not checked yet are no longer listed: unmark
+                // them, or markDirty() would never list them again.
+                for (int j = i + 1; j < nbToCheck; j++) {
+                    dirtyDigits[housesToCheck[j]] = 0;
+                }
+                clear();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Take the last queued square, remove its digit from the candidates of
+     * its peers, and elect the peers left with a single candidate.
+     *
+     * @return false when a peer has no candidate left.
+     */
+    private boolean removeFromPeers() {
+        nbPlaced--;
+        int cell = placedQueue[nbPlaced];
+        int digit = digits[cell];
+        int nbChanged = candidates.eliminateFromPeers(cell, digit, changedPeers);
+        nbEliminated += nbChanged;
+        for (int i = 0; i < nbChanged; i++) {
+            int peer = changedPeers[i];
+            int mask = candidates.getMask(peer);
+            if (mask == 0) {
+                return false;
+            }
+            markHousesDirty(peer, 1 << (digit - 1));
+            if ((mask & (mask - 1)) == 0) {
+                if (!elect(peer, Integer.numberOfTrailingZeros(mask) + 1, Technique.NAKED_SINGLE)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Elect the hidden singles of a house, among the given digits.
+     *
+     * @return false when a missing digit has no place left.
+     */
+    private boolean checkHouse(int house, int digitsToCheck) {
+        digitsToCheck &= ~candidates.getUsedInHouse(house);
+        if (digitsToCheck == 0) {
+            return true;
+        }
+
+        int once = 0;
+        int twice = 0;
+        for (int i = 0; i < size; i++) {
+            int mask = candidates.getMask(candidates.getHouseCell(house, i));
+            twice |= once & mask;
+            once |= mask;
+        }
+        if ((digitsToCheck & ~once) != 0) {
+            // A missing digit has no place left in this house.
+            return false;
+        }
+
+        int hiddenSingles = digitsToCheck & ~twice;
+        while (hiddenSingles != 0) {
+            int digit = Integer.numberOfTrailingZeros(hiddenSingles) + 1;
+            hiddenSingles &= hiddenSingles - 1;
+            for (int i = 0; i < size; i++) {
+                int cell = candidates.getHouseCell(house, i);
+                if (candidates.isCandidate(cell, digit)) {
+                    if (!elect(cell, digit, Technique.HIDDEN_SINGLE)) {
+                        return false;
+                    }
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove candidates from a square, found by one of the advanced
+     * techniques, and queue their consequences.
+     *
+     * @param digitsToRemove the mask of the digits to remove
+     * @return false when the square has no candidate left.
+     */
+    boolean eliminate(int cell, int digitsToRemove, Technique technique) {
+        int removed = candidates.remove(cell, digitsToRemove);
+        if (removed == 0) {
+            return true;
+        }
+        markHousesDirty(cell, removed);
+        if (listener != null) {
+            for (int bits = removed; bits != 0; bits &= bits - 1) {
+                listener.candidateRemoved(cell / size, cell % size,
+                        Integer.numberOfTrailingZeros(bits) + 1, technique);
+            }
+        }
+        int mask = candidates.getMask(cell);
+        if (mask == 0) {
+            return false;
+        }
+        if ((mask & (mask - 1)) == 0) {
+            return elect(cell, Integer.numberOfTrailingZeros(mask) + 1, Technique.NAKED_SINGLE);
+        }
+        return true;
+    }
+
+    private boolean elect(int cell, int digit, Technique technique) {
+        if (!place(cell, digit)) {
+            return false;
+        }
+        if (technique == Technique.NAKED_SINGLE) {
+            nbNakedSingles++;
+        } else {
+            nbHiddenSingles++;
+        }
+        if (listener != null) {
+            listener.digitFound(cell / size, cell % size, digit, technique);
+        }
+        return true;
+    }
+
+    private void markHousesDirty(int cell, int lostDigits) {
+        markDirty(candidates.getLine(cell), lostDigits);
+        markDirty(size + candidates.getCol(cell), lostDigits);
+        markDirty(2 * size + candidates.getBlock(cell), lostDigits);
+    }
+
+    private void markDirty(int house, int lostDigits) {
+        if (dirtyDigits[house] == 0) {
+            dirtyHouses[nbDirtyHouses] = house;
+            nbDirtyHouses++;
+        }
+        dirtyDigits[house] |= lostDigits;
+    }
+}
@@ -0,0 +1,323 @@
+/**
+ * This file represents a generator of puzzles.
+ */
+package sudoku;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generate puzzles that have exactly one solution.
+ *
+ * Each puzzle starts from a random full grid: the blocks of the diagonal,
+ * which do not share any line or column, are filled with random
+ * permutations, the propagation solver completes the grid (a new fill is
+ * drawn when it cannot, which happens often for 4x4 grids), and the result
+ * is shuffled by relabeling the digits, reordering bands, stacks, lines and
+ * columns, and transposing. Then the clues are removed in random order; a
+ * clue stays when removing it would allow another solution, i.e. when the
+ * puzzle still has a solution with another digit in its square. That test
+ * is one search for a single solution, which stops much earlier than
+ * counting all of them, and it is given a number of nodes (see
+ * setMaxCheckNodes()): a clue whose test needs more is kept. The puzzles of
+ * 16x16 grids and above may then keep a few clues more than needed, and are
+ * made about five times faster. Every puzzle is checked to have exactly one
+ * solution before it is returned, and drawn again when it does not.
+ *
+ * Puzzle number i only depends on the seed and on i, so the output is the
+ * same whatever the number of threads.
+ *
+ * @author arthurmanoha
+ */
+public class PuzzleGenerator {
+
+    // Number of puzzles handed to a worker at once.
+    private static final int CHUNK_SIZE = 64;
+
+    // Draws of one puzzle before giving up; see generate().
+    private static final int MAX_ATTEMPTS = 100;
+
+    // See setMaxCheckNodes().
+    public static final long DEFAULT_CHECK_NODES = 100;
+
+    private final int size;
+    private final int blockSize;
+    private final int nbCells;
+    private final long seed;
+
+    // Clue removal stops at this number of clues; 0 removes as many as
+    // possible.
+    private int targetClues;
+
+    // Largest number of search nodes spent to tell if a clue may be removed;
+    // a clue whose test needs more is kept. 0 for no limit.
+    private long maxCheckNodes = DEFAULT_CHECK_NODES;
+
+    // The work arrays of each thread.
+    private final ThreadLocal<Worker> workers;
+
+    /**
+     * @param size the size of the grids: 4, 9, 16 or 25
+     * @param seed the seed of the whole sequence of puzzles
+     */
+    public PuzzleGenerator(int size, long seed) {
+        int blockSize = (int) Math.round(Math.sqrt(size));
+        if (size < 1 || size > Grid.MAX_SIZE || blockSize * blockSize != size) {
+            throw new IllegalArgumentException("Unsupported grid size " + size);
+        }
+        this.size = size;
+        this.blockSize = blockSize;
+        this.nbCells = size * size;
+        this.seed = seed;
+        this.workers = ThreadLocal.withInitial(Worker::new);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @param targetClues clue removal stops once the puzzle has this many
+     * clues; with 0, the default, it goes on until no clue can be removed.
+     */
+    public void setTargetClues(int targetClues) {
+        this.targetClues = targetClues;
+    }
+
+    /**
+     * @param maxCheckNodes the largest number of search nodes spent to tell
+     * if a clue may be removed; when the search needs more, the clue is
+     * kept, which never breaks uniqueness but may leave a clue that could
+     * have gone. 0 removes every clue that can go, which is slow for 16x16
+     * grids and above. The default is DEFAULT_CHECK_NODES.
+     */
+    public void setMaxCheckNodes(long maxCheckNodes) {
+        this.maxCheckNodes = maxCheckNodes;
+    }
+
+    /**
+     * Generate one puzzle of the sequence. A puzzle that does not have
+     * exactly one solution is drawn again, from a seed derived from the first
+     * one, so the puzzle still only depends on the seed and on the index.
+     *
+     * @param index the number of the puzzle, from 0
+     * @param dest receives one value per square, line after line, 0 for an
+     * empty square.
+     * @throws IllegalStateException when MAX_ATTEMPTS draws all failed,
+     * which means the generator is broken.
+     */
+    public void generate(long index, int[] dest) {
+        Worker worker = workers.get();
+        long puzzleSeed = mix(seed + mix(index));
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            SplittableRandom random = new SplittableRandom(attempt == 0 ? puzzleSeed : mix(puzzleSeed + attempt));
+            worker.fillSolution(random);
+            worker.removeClues(random);
+            if (worker.isUnique()) {
+                System.arraycopy(worker.puzzle, 0, dest, 0, nbCells);
+                return;
+            }
+        }
+        throw new IllegalStateException("No puzzle with a unique solution in " + MAX_ATTEMPTS + " draws");
+    }
+
+    /**
+     * Generate one puzzle of the sequence, as one line of symbols; see
+     * Grid.symbolOf().
+     */
+    public String generate(long index) {
+        int[] puzzle = new int[nbCells];
+        generate(index, puzzle);
+        StringBuilder sb = new StringBuilder(nbCells);
+        appendLine(puzzle, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Generate the first puzzles of the sequence and write them one per line,
+     * in order.
+     *
+     * @param count the number of puzzles
+     * @param out where the puzzles are written
+     * @param nbThreads the number of threads generating puzzles
+     * @throws IOException when writing fails.
+     */
+    public void generateAll(long count, Writer out, int nbThreads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, nbThreads));
+        // The chunks being generated, in order.
+        ArrayDeque<Future<StringBuilder>> pending = new ArrayDeque<>();
+        try {
+            for (long first = 0; first < count; first += CHUNK_SIZE) {
+                long start = first;
+                long end = Math.min(count, first + CHUNK_SIZE);
+                pending.add(pool.submit(() -> generateChunk(start, end)));
+                if (pending.size() >= 2 * nbThreads) {
+                    out.append(pending.poll().get());
+                }
+            }
+            while (!pending.isEmpty()) {
+                out.append(pending.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Generation interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        out.flush();
+    }
+
+    private StringBuilder generateChunk(long start, long end) {
+        int[] puzzle = new int[nbCells];
+        StringBuilder sb = new StringBuilder((int) (end - start) * (nbCells + 1));
+        for (long index = start; index < end; index++) {
+            generate(index, puzzle);
+            appendLine(puzzle, sb);
+            sb.append('\n');
+        }
+        return sb;
+    }
+
+    private static void appendLine(int[] puzzle, StringBuilder sb) {
+        for (int value : puzzle) {
+            sb.append(Grid.symbolOf(value));
+        }
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * The solver and arrays used by one thread.
+     */
+    private class Worker {
+
+        private final PropagationSolver solver = new PropagationSolver(size);
+        private final SolveBudget budget = new SolveBudget();
+        // Grid handed to the solver.
+        private final int[][] grid = new int[size][size];
+        private final int[] solution = new int[nbCells];
+        private final int[] puzzle = new int[nbCells];
+        private final int[] order = new int[nbCells];
+        // Permutations of the digits, lines and columns.
+        private final int[] digits = new int[size + 1];
+        private final int[] lines = new int[size];
+        private final int[] cols = new int[size];
+        private final int[] groups = new int[blockSize];
+        private final int[] inGroup = new int[blockSize];
+
+        /**
+         * Build a random full grid into 'solution'.
+         */
+        void fillSolution(SplittableRandom random) {
+            do {
+                for (int[] line : grid) {
+                    Arrays.fill(line, 0);
+                }
+                for (int block = 0; block < blockSize; block++) {
+                    permutation(digits, 1, size, random);
+                    for (int i = 0; i < size; i++) {
+                        grid[block * blockSize + i / blockSize][block * blockSize + i % blockSize] = digits[1 + i];
+                    }
+                }
+            } while (!solver.solve(grid));
+
+            permutation(digits, 1, size, random);
+            shuffleLines(lines, random);
+            shuffleLines(cols, random);
+            boolean transpose = random.nextBoolean();
+            for (int line = 0; line < size; line++) {
+                for (int col = 0; col < size; col++) {
+                    int value = digits[grid[lines[line]][cols[col]]];
+                    solution[transpose ? col * size + line : line * size + col] = value;
+                }
+            }
+        }
+
+        /**
+         * Copy the solution into 'puzzle', then remove the clues in random
+         * order, keeping the solution unique.
+         */
+        void removeClues(SplittableRandom random) {
+            System.arraycopy(solution, 0, puzzle, 0, nbCells);
+            permutation(order, 0, nbCells, random);
+            int nbClues = nbCells;
+            for (int i = 0; i < nbCells && nbClues > targetClues; i++) {
+                int cell = order[i];
+                int value = puzzle[cell];
+                puzzle[cell] = 0;
+                if (hasOtherSolution(cell, value)) {
+                    puzzle[cell] = value;
+                } else {
+                    nbClues--;
+                }
+            }
+        }
+
+        /**
+         * Tell if the puzzle, where 'cell' was just emptied, has a solution
+         * with another digit than 'value' in that square.
+         */
+        private boolean hasOtherSolution(int cell, int value) {
+            copyPuzzle();
+            return solver.hasSolutionWithout(grid, cell, value, budget.setMaxNodes(maxCheckNodes));
+        }
+
+        /**
+         * @return true when the puzzle has exactly one solution.
+         */
+        boolean isUnique() {
+            copyPuzzle();
+            return solver.countSolutions(grid, 2) == 1;
+        }
+
+        private void copyPuzzle() {
+            for (int i = 0; i < nbCells; i++) {
+                grid[i / size][i % size] = puzzle[i];
+            }
+        }
+
+        /**
+         * Random order of the lines (or columns): bands in random order, and
+         * lines in random order inside each band.
+         */
+        private void shuffleLines(int[] dest, SplittableRandom random) {
+            permutation(groups, 0, blockSize, random);
+            for (int group = 0; group < blockSize; group++) {
+                permutation(inGroup, 0, blockSize, random);
+                for (int i = 0; i < blockSize; i++) {
+                    dest[group * blockSize + i] = groups[group] * blockSize + inGroup[i];
+                }
+            }
+        }
+
+        /**
+         * Fill values[from..from+length-1] with a random permutation of
+         * from..from+length-1.
+         */
+        private void permutation(int[] values, int from, int length, SplittableRandom random) {
+            for (int i = 0; i < length; i++) {
+                values[from + i] = from + i;
+            }
+            for (int i = length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = values[from + i];
+                values[from + i] = values[from + j];
+                values[from + j] = tmp;
+            }
+        }
+    }
+}
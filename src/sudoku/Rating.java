@@ -0,0 +1,86 @@
+/**
+ * This file represents the rating of a puzzle.
+ */
+package sudoku;
+
+/**
+ * The difficulty of a puzzle, as found by DifficultyRater.
+ *
+ * @author arthurmanoha
+ */
+public class Rating {
+
+    private final Difficulty difficulty;
+    private final int score;
+    private final Technique hardestTechnique;
+    private final int[] techniqueCounts;
+    private final long searchNodes;
+    private final long searchBacktracks;
+    private final boolean solvable;
+
+    Rating(Difficulty difficulty, int score, Technique hardestTechnique, int[] techniqueCounts,
+            long searchNodes, long searchBacktracks, boolean solvable) {
+        this.difficulty = difficulty;
+        this.score = score;
+        this.hardestTechnique = hardestTechnique;
+        this.techniqueCounts = techniqueCounts;
+        this.searchNodes = searchNodes;
+        this.searchBacktracks = searchBacktracks;
+        this.solvable = solvable;
+    }
+
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * @return a number that grows with the difficulty, to sort puzzles of the
+     * same level.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the hardest technique used, or null when the puzzle was already
+     * solved.
+     */
+    public Technique getHardestTechnique() {
+        return hardestTechnique;
+    }
+
+    /**
+     * @return how many times a technique found a digit or removed a
+     * candidate.
+     */
+    public int getCount(Technique technique) {
+        return techniqueCounts[technique.ordinal()];
+    }
+
+    /**
+     * @return the number of nodes of the search that finished the puzzle
+     * after the techniques; 0 when the techniques were enough.
+     */
+    public long getSearchNodes() {
+        return searchNodes;
+    }
+
+    public long getSearchBacktracks() {
+        return searchBacktracks;
+    }
+
+    /**
+     * @return false when the puzzle has no solution; it is then rated
+     * DIABOLIC.
+     */
+    public boolean isSolvable() {
+        return solvable;
+    }
+
+    @Override
+    public String toString() {
+        return difficulty + " (score " + score + ", hardest " + hardestTechnique
+                + (searchNodes > 0 ? ", " + searchNodes + " search nodes" : "")
+                + (solvable ? "" : ", no solution") + ")";
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * This file represents a cache of solved puzzles.
+ */
+package sudoku;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remember the solutions of the last puzzles solved, by canonical form, so
+ * that a puzzle seen before, or any variant of it (see CanonicalForm), is
+ * answered without solving it again: the cached solution is mapped back
+ * through the inverse of the variant's transform.
+ *
+ * The cache holds at most maxEntries puzzles and forgets the least recently
+ * used one first. Puzzles without a solution are remembered too. A cache may
+ * be shared by several threads; each thread keeps its own CanonicalForm.
+ *
+ * @author arthurmanoha
+ */
+public class SolutionCache {
+
+    // Stored for the puzzles that have no solution.
+    private static final int[] NO_SOLUTION = new int[0];
+
+    private final int maxEntries;
+
+    // Canonical solutions by canonical form, in order of last use.
+    private final LinkedHashMap<String, int[]> solutions;
+
+    // Work arrays of each thread, for the size of its last puzzle.
+    private final ThreadLocal<Work> work = new ThreadLocal<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries the number of puzzles kept
+     */
+    public SolutionCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.solutions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                if (size() > SolutionCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Solve a grid, from the cache when it holds the puzzle or one of its
+     * variants, with Grid.solve() otherwise.
+     *
+     * @return true when the grid has a solution; it is then written in the
+     * grid.
+     */
+    public boolean solve(Grid grid) {
+        Work w = workFor(grid.getSize());
+        int size = grid.getSize();
+        for (int i = 0; i < w.digits.length; i++) {
+            w.digits[i] = grid.getDigit(i / size, i % size);
+        }
+        w.form.compute(w.digits);
+        String key = w.form.getKey();
+
+        int[] cached;
+        synchronized (solutions) {
+            cached = solutions.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            if (cached == NO_SOLUTION) {
+                return false;
+            }
+            w.form.fromCanonical(cached, w.digits);
+            grid.setSolution(w.digits);
+            return true;
+        }
+
+        misses.increment();
+        int[] canonicalSolution = NO_SOLUTION;
+        boolean solved = grid.solve();
+        if (solved) {
+            for (int i = 0; i < w.digits.length; i++) {
+                w.digits[i] = grid.getDigit(i / size, i % size);
+            }
+            canonicalSolution = new int[w.digits.length];
+            w.form.toCanonical(w.digits, canonicalSolution);
+        }
+        synchronized (solutions) {
+            solutions.put(key, canonicalSolution);
+        }
+        return solved;
+    }
+
+    private Work workFor(int size) {
+        Work w = work.get();
+        if (w == null || w.form.getSize() != size) {
+            w = new Work(size);
+            work.set(w);
+        }
+        return w;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return the number of puzzles in the cache.
+     */
+    public int getNbEntries() {
+        synchronized (solutions) {
+            return solutions.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the share of the puzzles answered from the cache, between 0
+     * and 1.
+     */
+    public double getHitRate() {
+        long nbHits = hits.sum();
+        long total = nbHits + misses.sum();
+        return total == 0 ? 0 : (double) nbHits / total;
+    }
+
+    public void clear() {
+        synchronized (solutions) {
+            solutions.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getNbEntries() + "/" + maxEntries + " puzzles cached, " + getHits() + " hits, "
+                + getMisses() + " misses, " + getEvictions() + " evictions, "
+                + String.format("%.1f%% hit rate", 100 * getHitRate());
+    }
+
+    /**
+     * The canonical form and digits of a thread.
+     */
+    private static class Work {
+
+        private final CanonicalForm form;
+        private final int[] digits;
+
+        Work(int size) {
+            form = new CanonicalForm(size);
+            digits = new int[size * size];
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * This file represents the limits of a solve.
+ */
+package sudoku;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits on a solve: a number of nodes of the search, a time, and a flag that
+ * another thread may raise to stop it. The solvers check the nodes at each
+ * node, and the time and the flag every CHECK_INTERVAL nodes, so the checks
+ * cost next to nothing; a solve stops at most CHECK_INTERVAL nodes after its
+ * deadline or cancel(), however long those nodes take.
+ *
+ * Every solver of Grid accepts a budget: backtracking, propagation, logic
+ * and search, Dancing Links and the parallel search, whose threads share it
+ * and check it every CHECK_INTERVAL nodes each, the node limit included.
+ * Counting solutions (countSolutions()) and the rules alone
+ * (solveLogically()) are not limited.
+ *
+ * The time counts from the start of each solve. A budget may be reused for
+ * any number of solves, one at a time; once cancelled, it stops every solve
+ * until reset().
+ *
+ * @author arthurmanoha
+ */
+public class SolveBudget {
+
+    // Nodes between two checks of the clock and of the flag; a power of two.
+    static final int CHECK_INTERVAL = 1024;
+
+    private long maxNodes = Long.MAX_VALUE;
+    private long timeoutNanos;
+    private volatile boolean cancelled;
+
+    // End of the current solve, in System.nanoTime(); 0 without a timeout.
+    private long deadline;
+
+    /**
+     * @param maxNodes the number of nodes the search may visit; 0 or less
+     * for no limit.
+     */
+    public SolveBudget setMaxNodes(long maxNodes) {
+        this.maxNodes = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        return this;
+    }
+
+    /**
+     * @param timeout the time each solve may take; 0 or less for no limit.
+     */
+    public SolveBudget setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutNanos = Math.max(0, unit.toNanos(timeout));
+        return this;
+    }
+
+    /**
+     * Stop the solve that uses this budget, as soon as it checks it; may be
+     * called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Allow solving again after cancel().
+     */
+    public void reset() {
+        cancelled = false;
+    }
+
+    /**
+     * Start the clock of a solve.
+     */
+    void start() {
+        deadline = timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : 0;
+    }
+
+    /**
+     * Tell if a solve must stop.
+     *
+     * @param nodes the nodes visited so far
+     * @return the reason to stop, or null to go on.
+     */
+    SolveStatus check(long nodes) {
+        if (nodes > maxNodes) {
+            return SolveStatus.BUDGET_EXCEEDED;
+        }
+        if ((nodes & (CHECK_INTERVAL - 1)) == 1) {
+            return checkAll(nodes);
+        }
+        return null;
+    }
+
+    /**
+     * Tell if a solve must stop, checking the clock and the flag whatever the
+     * number of nodes; for the callers that only check every CHECK_INTERVAL
+     * nodes themselves.
+     *
+     * @param nodes the nodes visited so far
+     * @return the reason to stop, or null to go on.
+     */
+    SolveStatus checkAll(long nodes) {
+        if (nodes > maxNodes) {
+            return SolveStatus.BUDGET_EXCEEDED;
+        }
+        if (cancelled) {
+            return SolveStatus.CANCELLED;
+        }
+        if (deadline != 0 && System.nanoTime() - deadline > 0) {
+            return SolveStatus.DEADLINE_EXCEEDED;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * This file represents an observer of the rule-based solver.
+ */
+package sudoku;
+
+/**
+ * Receives the progress of the rule-based solver, e.g. for tracing. Every
+ * method does nothing by default.
+ *
+ * @author arthurmanoha
+ */
+public interface SolveListener {
+
+    /**
+     * Called each time a rule finds a digit.
+     *
+     * @param line
+     * @param col
+     * @param digit the digit found (1->size)
+     * @param technique the rule that found it
+     */
+    default void digitFound(int line, int col, int digit, Technique technique) {
+    }
+
+    /**
+     * Called each time a technique removes a candidate, without finding a
+     * digit yet.
+     *
+     * @param line
+     * @param col
+     * @param digit the candidate removed (1->size)
+     * @param technique the technique that removed it
+     */
+    default void candidateRemoved(int line, int col, int digit, Technique technique) {
+    }
+
+    /**
+     * Called after each pass of the rules.
+     *
+     * @param grid the grid being solved
+     * @param pass the number of passes done so far
+     */
+    default void passDone(Grid grid, int pass) {
+    }
+}
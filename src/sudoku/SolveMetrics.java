@@ -0,0 +1,132 @@
+/**
+ * This file represents the measures taken during one solve.
+ */
+package sudoku;
+
+/**
+ * What a solver did on one grid: nodes of the search, backtracks, depth,
+ * work of each rule, and time. Filled by Grid after each solve when a
+ * SolverStats is set; see Grid.setStats().
+ *
+ * The rules are only counted by the solvers that apply them: the propagation
+ * solver and solveLogically().
+ *
+ * @author arthurmanoha
+ */
+public class SolveMetrics {
+
+    private String solver;
+    private boolean solved;
+
+    // Search.
+    private long nodes;
+    private long backtracks;
+    private int maxDepth;
+
+    // Rule one: candidates removed; rule two: naked singles elected;
+    // rule three: hidden singles elected.
+    private long ruleOne;
+    private long ruleTwo;
+    private long ruleThree;
+
+    private long wallNanos;
+
+    /**
+     * Forget the previous solve.
+     */
+    void clear() {
+        solver = null;
+        solved = false;
+        nodes = 0;
+        backtracks = 0;
+        maxDepth = 0;
+        ruleOne = 0;
+        ruleTwo = 0;
+        ruleThree = 0;
+        wallNanos = 0;
+    }
+
+    void setSearch(long nodes, long backtracks, int maxDepth) {
+        this.nodes = nodes;
+        this.backtracks = backtracks;
+        this.maxDepth = maxDepth;
+    }
+
+    void setRules(long ruleOne, long ruleTwo, long ruleThree) {
+        this.ruleOne = ruleOne;
+        this.ruleTwo = ruleTwo;
+        this.ruleThree = ruleThree;
+    }
+
+    void setOutcome(String solver, boolean solved, long wallNanos) {
+        this.solver = solver;
+        this.solved = solved;
+        this.wallNanos = wallNanos;
+    }
+
+    /**
+     * @return the name of the solver: "backtrack", "propagation",
+     * "dancingLinks", "parallel", "logic" or "logicSearch".
+     */
+    public String getSolver() {
+        return solver;
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    /**
+     * @return the number of nodes visited by the search.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of times the search went back after a dead end.
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * @return the deepest level of the search, in digits guessed.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the number of candidates removed by rule one.
+     */
+    public long getRuleOne() {
+        return ruleOne;
+    }
+
+    /**
+     * @return the number of digits found by rule two (naked singles).
+     */
+    public long getRuleTwo() {
+        return ruleTwo;
+    }
+
+    /**
+     * @return the number of digits found by rule three (hidden singles).
+     */
+    public long getRuleThree() {
+        return ruleThree;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return solver + ": " + (solved ? "solved" : "not solved") + ", "
+                + nodes + " nodes, " + backtracks + " backtracks, max depth "
+                + maxDepth + ", rules " + ruleOne + "/" + ruleTwo + "/" + ruleThree
+                + ", " + wallNanos / 1000 + " us";
+    }
+}
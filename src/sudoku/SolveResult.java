@@ -0,0 +1,53 @@
+/**
+ * This file represents the outcome of a bounded solve.
+ */
+package sudoku;
+
+/**
+ * How a solve run with a SolveBudget ended, and what it did until then.
+ *
+ * What a stopped solve leaves in the grid depends on the solver: the
+ * propagation and the logic and search solvers leave the digits given and
+ * those the rules deduced before the first guess; backtracking, Dancing
+ * Links and the parallel search leave the grid as it was.
+ *
+ * @author arthurmanoha
+ */
+public class SolveResult {
+
+    private final SolveStatus status;
+    private final SolveMetrics metrics;
+
+    SolveResult(SolveStatus status, SolveMetrics metrics) {
+        this.status = status;
+        this.metrics = metrics;
+    }
+
+    public SolveStatus getStatus() {
+        return status;
+    }
+
+    public boolean isSolved() {
+        return status == SolveStatus.SOLVED;
+    }
+
+    /**
+     * @return true when the solve was stopped before its end, by the budget
+     * or by a cancellation; solving again with a larger budget may succeed.
+     */
+    public boolean isStopped() {
+        return status != SolveStatus.SOLVED && status != SolveStatus.UNSOLVABLE;
+    }
+
+    /**
+     * @return the work done, including when the solve was stopped.
+     */
+    public SolveMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return status + " (" + metrics + ")";
+    }
+}
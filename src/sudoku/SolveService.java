@@ -0,0 +1,323 @@
+/**
+ * This file represents a local solving service.
+ */
+package sudoku;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Solve puzzles sent over HTTP, on the loopback address only.
+ *
+ * POST /solve takes one puzzle per line, in any format read by
+ * Grid.initGrid(), and answers one line per puzzle, in the same order: the
+ * solution, "no solution", "invalid", "gave up" when the puzzle needs more
+ * than the budget of a puzzle (see setBudget()), or "error". When the queue
+ * is full, the post is answered with 503. GET /stats answers the latency
+ * statistics, from the arrival of each puzzle to its answer.
+ *
+ * Each connection is handled on its own thread: a virtual thread when the
+ * JDK has them, a pooled platform thread otherwise. The connections only
+ * queue their puzzles and wait; a few workers take the puzzles from the queue
+ * by batches, whatever connection they come from, and solve them with their
+ * own Grid, reused for every puzzle of the same size.
+ *
+ * @author arthurmanoha
+ */
+public class SolveService implements Closeable {
+
+    // Default limits: puzzles waiting, time and nodes for each puzzle.
+    public static final int DEFAULT_MAX_QUEUED = 10000;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 1000;
+    public static final long DEFAULT_MAX_NODES = 0;
+
+    private final int nbWorkers;
+
+    // Largest number of puzzles a worker takes from the queue at once.
+    private final int maxBatch;
+
+    // Puzzles received and not yet taken by a worker.
+    private final BlockingQueue<Request> queue;
+
+    // Limits of the search of each puzzle; see setBudget().
+    private volatile long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIMEOUT_MILLIS);
+    private volatile long maxNodes = DEFAULT_MAX_NODES;
+
+    // Latency of every puzzle answered.
+    private final SolverStats stats = new SolverStats();
+
+    private final Thread[] workers;
+    private ExecutorService connections;
+    private HttpServer server;
+
+    /**
+     * @param nbWorkers the number of threads solving puzzles
+     * @param maxBatch the largest number of puzzles a worker takes at once
+     */
+    public SolveService(int nbWorkers, int maxBatch) {
+        this(nbWorkers, maxBatch, DEFAULT_MAX_QUEUED);
+    }
+
+    /**
+     * @param nbWorkers the number of threads solving puzzles
+     * @param maxBatch the largest number of puzzles a worker takes at once
+     * @param maxQueued the largest number of puzzles waiting for a worker;
+     * more are rejected.
+     */
+    public SolveService(int nbWorkers, int maxBatch, int maxQueued) {
+        if (nbWorkers < 1 || maxBatch < 1 || maxQueued < 1) {
+            throw new IllegalArgumentException("Invalid service settings: " + nbWorkers
+                    + " workers, batches of " + maxBatch + ", " + maxQueued + " queued");
+        }
+        this.nbWorkers = nbWorkers;
+        this.maxBatch = maxBatch;
+        this.queue = new LinkedBlockingQueue<>(maxQueued);
+        this.workers = new Thread[nbWorkers];
+    }
+
+    /**
+     * Limit the search of each puzzle, so that one hard puzzle cannot hold a
+     * worker for long; a puzzle stopped by these limits is answered "gave
+     * up". The default is DEFAULT_TIMEOUT_MILLIS, without a node limit.
+     *
+     * @param timeout the time a puzzle may take, 0 for no limit
+     * @param maxNodes the number of search nodes a puzzle may take, 0 for no
+     * limit
+     */
+    public void setBudget(long timeout, TimeUnit unit, long maxNodes) {
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Start the workers and listen on the loopback address.
+     *
+     * @param port the port, or 0 for any free port
+     * @return the port listened on.
+     * @throws IOException when the port cannot be used.
+     */
+    public synchronized int start(int port) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Service already started");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/stats", this::handleStats);
+        connections = newConnectionExecutor();
+        server.setExecutor(connections);
+        for (int i = 0; i < nbWorkers; i++) {
+            workers[i] = new Thread(this::work, "sudoku-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * One virtual thread per task when the JDK has them (Java 21 and later),
+     * a cached pool of platform threads otherwise.
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Stop listening and stop the workers; the puzzles still queued are
+     * answered with an error.
+     */
+    @Override
+    public synchronized void close() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        connections.shutdown();
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            connections.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(new IllegalStateException("Service stopped"));
+        }
+        server = null;
+    }
+
+    /**
+     * Queue a puzzle for the workers.
+     *
+     * @param puzzle in any format read by Grid.initGrid()
+     * @return the answer: the solution as one line of symbols, "no solution",
+     * "invalid", "gave up" or "error"; completed with a
+     * RejectedExecutionException when the queue is full.
+     */
+    public CompletableFuture<String> submit(String puzzle) {
+        Request request = new Request(puzzle.trim());
+        if (!queue.offer(request)) {
+            request.result.completeExceptionally(new RejectedExecutionException("Too many puzzles queued"));
+        }
+        return request.result;
+    }
+
+    /**
+     * @return the latency of the puzzles answered so far.
+     */
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Take the puzzles from the queue by batches, until interrupted.
+     */
+    private void work() {
+        ArrayList<Request> batch = new ArrayList<>(maxBatch);
+        SolveMetrics metrics = new SolveMetrics();
+        SolveBudget budget = new SolveBudget();
+        StringBuilder answer = new StringBuilder();
+        Grid grid = new Grid();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+                for (Request request : batch) {
+                    answer.setLength(0);
+                    boolean solved = false;
+                    try {
+                        int size = Grid.sizeOf(request.puzzle);
+                        if (grid.getSize() != size) {
+                            grid = new Grid(size);
+                        }
+                        grid.initGrid(request.puzzle);
+                        budget.setTimeout(timeoutNanos, TimeUnit.NANOSECONDS).setMaxNodes(maxNodes);
+                        SolveResult result = grid.solve(budget);
+                        solved = result.isSolved();
+                        if (solved) {
+                            grid.appendLine(answer);
+                        } else if (result.isStopped()) {
+                            answer.append("gave up");
+                        } else {
+                            answer.append("no solution");
+                        }
+                    } catch (IllegalArgumentException e) {
+                        answer.append("invalid");
+                    } catch (RuntimeException e) {
+                        Logger.getLogger(SolveService.class.getName()).log(Level.WARNING, request.puzzle, e);
+                        answer.setLength(0);
+                        answer.append("error");
+                        // The grid may be left in any state.
+                        grid = new Grid();
+                    }
+                    metrics.clear();
+                    metrics.setOutcome("service", solved, System.nanoTime() - request.arrival);
+                    stats.record(metrics, null);
+                    request.result.complete(answer.toString());
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // The service is stopping; puzzles of the current batch are all
+            // answered.
+        } finally {
+            // Only left unanswered when an Error stops the worker.
+            for (Request request : batch) {
+                request.result.completeExceptionally(new IllegalStateException("Worker stopped"));
+            }
+        }
+    }
+
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                send(exchange, 405, "POST one puzzle per line\n");
+                return;
+            }
+            ArrayList<CompletableFuture<String>> answers = new ArrayList<>();
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.US_ASCII))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        CompletableFuture<String> answer = submit(line);
+                        if (answer.isCompletedExceptionally()) {
+                            // The puzzles already queued are still solved,
+                            // but nobody waits for them.
+                            send(exchange, 503, "Too many puzzles queued, try again later\n");
+                            return;
+                        }
+                        answers.add(answer);
+                    }
+                }
+            }
+            StringBuilder body = new StringBuilder();
+            for (CompletableFuture<String> answer : answers) {
+                body.append(answer.join()).append('\n');
+            }
+            send(exchange, 200, body);
+        } catch (RuntimeException e) {
+            send(exchange, 503, "Service unavailable\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            send(exchange, 200, queue.size() + " queued, " + stats + "\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * A puzzle waiting for its answer.
+     */
+    private static class Request {
+
+        private final String puzzle;
+        private final long arrival = System.nanoTime();
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        Request(String puzzle) {
+            this.puzzle = puzzle;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * This file represents how a bounded solve ended.
+ */
+package sudoku;
+
+/**
+ * The outcome of a solve run with a SolveBudget.
+ *
+ * @author arthurmanoha
+ */
+public enum SolveStatus {
+
+    /**
+     * The grid holds a solution.
+     */
+    SOLVED,
+    /**
+     * The whole search was done: the grid has no solution.
+     */
+    UNSOLVABLE,
+    /**
+     * The search visited the number of nodes allowed.
+     */
+    BUDGET_EXCEEDED,
+    /**
+     * The search ran past its deadline.
+     */
+    DEADLINE_EXCEEDED,
+    /**
+     * The budget was cancelled from another thread.
+     */
+    CANCELLED
+}
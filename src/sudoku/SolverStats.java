@@ -0,0 +1,225 @@
+/**
+ * This file represents the statistics of many solves.
+ */
+package sudoku;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Sum of the SolveMetrics of many solves, safe to share between threads, and
+ * a histogram of the solve times. Can be registered as a JMX MBean, under
+ * "sudoku:type=SolverStats,name=...".
+ *
+ * Bucket 0 of the histogram counts the solves under one microsecond, and
+ * bucket k the solves between 2^(k-1) and 2^k microseconds.
+ *
+ * @author arthurmanoha
+ */
+public class SolverStats implements SolverStatsMBean {
+
+    private static final int NB_BUCKETS = 32;
+
+    private final LongAdder solves = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder backtracks = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder ruleOne = new LongAdder();
+    private final LongAdder ruleTwo = new LongAdder();
+    private final LongAdder ruleThree = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray(NB_BUCKETS);
+
+    // The slowest solve so far.
+    private volatile long slowestNanos;
+    private String slowestSolver;
+    private String slowestPuzzle;
+
+    /**
+     * Add one solve.
+     *
+     * @param metrics what the solver did
+     * @param puzzle the grid before the solve, as one line; may be null.
+     */
+    public void record(SolveMetrics metrics, CharSequence puzzle) {
+        solves.increment();
+        if (metrics.isSolved()) {
+            solved.increment();
+        }
+        nodes.add(metrics.getNodes());
+        backtracks.add(metrics.getBacktracks());
+        maxDepth.accumulate(metrics.getMaxDepth());
+        ruleOne.add(metrics.getRuleOne());
+        ruleTwo.add(metrics.getRuleTwo());
+        ruleThree.add(metrics.getRuleThree());
+
+        long nanos = metrics.getWallNanos();
+        wallNanos.add(nanos);
+        histogram.incrementAndGet(bucketOf(nanos));
+        if (nanos > slowestNanos) {
+            synchronized (this) {
+                if (nanos > slowestNanos) {
+                    slowestNanos = nanos;
+                    slowestSolver = metrics.getSolver();
+                    slowestPuzzle = puzzle == null ? null : puzzle.toString();
+                }
+            }
+        }
+    }
+
+    private static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(NB_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Register these statistics with the platform MBean server.
+     *
+     * @param name the name of this set of statistics, e.g. "batch"
+     * @return false when the registration failed; the reason is logged.
+     */
+    public boolean register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("sudoku:type=SolverStats,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return true;
+        } catch (JMException ex) {
+            Logger.getLogger(SolverStats.class.getName()).log(Level.WARNING, null, ex);
+            return false;
+        }
+    }
+
+    @Override
+    public long getSolves() {
+        return solves.sum();
+    }
+
+    @Override
+    public long getSolved() {
+        return solved.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public long getBacktracks() {
+        return backtracks.sum();
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return (int) maxDepth.get();
+    }
+
+    @Override
+    public long getRuleOne() {
+        return ruleOne.sum();
+    }
+
+    @Override
+    public long getRuleTwo() {
+        return ruleTwo.sum();
+    }
+
+    @Override
+    public long getRuleThree() {
+        return ruleThree.sum();
+    }
+
+    @Override
+    public long getTotalMillis() {
+        return wallNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long n = solves.sum();
+        return n == 0 ? 0 : wallNanos.sum() / 1000.0 / n;
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        long[] counts = new long[NB_BUCKETS];
+        for (int k = 0; k < NB_BUCKETS; k++) {
+            counts[k] = histogram.get(k);
+        }
+        return counts;
+    }
+
+    /**
+     * @param percent between 0 and 100
+     * @return the upper bound, in microseconds, of the histogram bucket that
+     * holds the given percentile of the solve times.
+     */
+    @Override
+    public long getPercentileMicros(double percent) {
+        long[] counts = getLatencyHistogram();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        long rank = (long) Math.ceil(total * percent / 100);
+        long seen = 0;
+        for (int k = 0; k < NB_BUCKETS; k++) {
+            seen += counts[k];
+            if (seen >= rank && seen > 0) {
+                return 1L << k;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public long getSlowestMicros() {
+        return slowestNanos / 1000;
+    }
+
+    @Override
+    public synchronized String getSlowestSolver() {
+        return slowestSolver;
+    }
+
+    @Override
+    public synchronized String getSlowestPuzzle() {
+        return slowestPuzzle;
+    }
+
+    @Override
+    public synchronized void reset() {
+        solves.reset();
+        solved.reset();
+        nodes.reset();
+        backtracks.reset();
+        maxDepth.reset();
+        ruleOne.reset();
+        ruleTwo.reset();
+        ruleThree.reset();
+        wallNanos.reset();
+        for (int k = 0; k < NB_BUCKETS; k++) {
+            histogram.set(k, 0);
+        }
+        slowestNanos = 0;
+        slowestSolver = null;
+        slowestPuzzle = null;
+    }
+
+    @Override
+    public String toString() {
+        return getSolves() + " solves, " + getSolved() + " solved, "
+                + getNodes() + " nodes, " + getBacktracks() + " backtracks, max depth "
+                + getMaxDepth() + ", rules " + getRuleOne() + "/" + getRuleTwo()
+                + "/" + getRuleThree() + String.format(", mean %.1f us", getMeanMicros())
+                + ", p50 " + getPercentileMicros(50) + " us, p99 "
+                + getPercentileMicros(99) + " us, slowest " + getSlowestMicros() + " us";
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * This file represents the management interface of the solver statistics.
+ */
+package sudoku;
+
+/**
+ * The attributes and operations of SolverStats seen through JMX.
+ *
+ * @author arthurmanoha
+ */
+public interface SolverStatsMBean {
+
+    long getSolves();
+
+    long getSolved();
+
+    long getNodes();
+
+    long getBacktracks();
+
+    int getMaxDepth();
+
+    long getRuleOne();
+
+    long getRuleTwo();
+
+    long getRuleThree();
+
+    long getTotalMillis();
+
+    double getMeanMicros();
+
+    long[] getLatencyHistogram();
+
+    long getPercentileMicros(double percent);
+
+    long getSlowestMicros();
+
+    String getSlowestSolver();
+
+    String getSlowestPuzzle();
+
+    void reset();
+}
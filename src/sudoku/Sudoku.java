@@ -5,23 +5,385 @@
  */
 package sudoku;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 /**
  *
  * @author arthurmanoha
  */
 public class Sudoku {
 
+    // Name ending of the packed puzzle files; see PackedPuzzles.
+    private static final String PACKED_EXTENSION = ".sdkp";
+
     /**
-     * @param args the command line arguments
+     * @param args the command line arguments. Without arguments, solve one of
+     * the bundled grids with the rules, one pass at a time, waiting for a key
+     * after each pass. With "--generate", write new puzzles: --generate
+     * count output [size [seed [threads]]]. With "--pack", convert a text file of puzzles (or
+     * the standard input) into a packed file: --pack input output. With
+     * "--rate", write the difficulty and score of every puzzle of a file:
+     * --rate input output. With "--serve", solve the puzzles posted to
+     * http://127.0.0.1:port/solve until stopped: --serve [port [workers]].
+     * With "--verify", count the solved grids of a file: --verify input; run
+     * with "--add-modules jdk.incubator.vector" to check them with vectors.
+     * Otherwise:
+     * the puzzle file ('-' for the standard input, or a packed file whose name
+     * ends with ".sdkp"), then optionally the solution file (standard output by default)
+     * and the number of threads (all processors by default). With
+     * -Dsudoku.metrics=true, the metrics of the batch are published through
+     * JMX and printed at the end. With -Dsudoku.cache=N, the solutions of the
+     * last N puzzles are cached, and variants of the same puzzle are solved
+     * only once.
      */
     public static void main(String[] args) {
 
-        String gridToSolve = Grid.grid2;
+        if (args.length >= 3 && args[0].equals("--generate")) {
+            int size = args.length > 3 ? Integer.parseInt(args[3]) : 9;
+            long seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+            int nbThreads = args.length > 5 ? Integer.parseInt(args[5])
+                    : Runtime.getRuntime().availableProcessors();
+            generateFile(Long.parseLong(args[1]), args[2], size, seed, nbThreads);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("--pack")) {
+            packFile(args[1], args[2]);
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--serve")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            int nbWorkers = args.length > 2 ? Integer.parseInt(args[2])
+                    : Runtime.getRuntime().availableProcessors();
+            serve(port, nbWorkers);
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--verify")) {
+            verifyFile(args[1]);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("--rate")) {
+            rateFile(args[1], args[2]);
+            return;
+        }
+        if (args.length > 0) {
+            int nbThreads = args.length > 2 ? Integer.parseInt(args[2])
+                    : Runtime.getRuntime().availableProcessors();
+            solveFile(args[0], args.length > 1 ? args[1] : "-", nbThreads);
+            return;
+        }
+
+        solveByHand(new Grid(Grid.grid2));
+    }
+
+    /**
+     * Solve a grid with the rules, one pass at a time: the grid is shown with
+     * its candidates on the standard output after each pass, and the next
+     * pass waits for a key on the standard input.
+     *
+     * @return true when the rules solved the grid.
+     */
+    private static boolean solveByHand(Grid grid) {
+        GridSerializer printer = new GridSerializer();
+        int digitsAtStart = countDigits(grid);
+        printer.appendCandidates(grid);
+        appendProgress(printer, grid, digitsAtStart);
+        print(printer);
 
-        Grid g = new Grid(gridToSolve);
-//        g.solveWithBacktrack();
-        g = new Grid(gridToSolve);
-        g.solveByHand();
+        LogicResult result = grid.solveLogically(new SolveListener() {
+            @Override
+            public void passDone(Grid grid, int pass) {
+                printer.appendCandidates(grid);
+                appendProgress(printer, grid, digitsAtStart);
+                printer.append("**************\n**************\n*** STEP ").append(pass)
+                        .append(" ***\n**************\n**************\nPress any key.\n");
+                print(printer);
+                try {
+                    System.in.read();
+                } catch (IOException ex) {
+                    Logger.getLogger(Sudoku.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        });
+
+        printer.append("Solving manually: ").append(result.getPasses()).append(" steps.\n");
+        if (result.isSolved()) {
+            printer.appendBoard(grid).append("...\n\n");
+        } else {
+            printer.appendCandidates(grid);
+        }
+        appendProgress(printer, grid, digitsAtStart);
+        if (result.isSolved()) {
+            printer.append("grid solved\n");
+        } else if (countDigits(grid) == grid.getSize() * grid.getSize()) {
+            printer.append("grid full but not solved.\n");
+        }
+        print(printer);
+        return result.isSolved();
+    }
+
+    private static int countDigits(Grid grid) {
+        int count = 0;
+        for (int line = 0; line < grid.getSize(); line++) {
+            for (int col = 0; col < grid.getSize(); col++) {
+                if (grid.getDigit(line, col) != 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void appendProgress(GridSerializer printer, Grid grid, int digitsAtStart) {
+        int digits = countDigits(grid);
+        printer.append(digits - digitsAtStart).append(" digits found, ")
+                .append(grid.getSize() * grid.getSize() - digits).append(" remaining.\n");
+    }
+
+    /**
+     * Write the text of the serializer on the standard output, at once.
+     */
+    private static void print(GridSerializer printer) {
+        try {
+            printer.writeTo(System.out);
+        } catch (IOException ex) {
+            Logger.getLogger(Sudoku.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        System.out.flush();
+    }
+
+    /**
+     * Solve every puzzle of a file, one puzzle per line, and print the
+     * statistics on the error output.
+     *
+     * @param inputName the puzzle file, or '-' for the standard input
+     * @param outputName the solution file, or '-' for the standard output
+     * @param nbThreads the number of worker threads
+     */
+    private static void solveFile(String inputName, String outputName, int nbThreads) {
+        BatchSolver solver = new BatchSolver(nbThreads);
+        if (Boolean.getBoolean("sudoku.metrics")) {
+            SolverStats stats = new SolverStats();
+            stats.register("batch");
+            solver.setStats(stats);
+        }
+        int cacheSize = Integer.getInteger("sudoku.cache", 0);
+        if (cacheSize > 0) {
+            solver.setCache(new SolutionCache(cacheSize));
+        }
+        if (inputName.endsWith(PACKED_EXTENSION)) {
+            try (PackedReader in = new PackedReader(Paths.get(inputName));
+                    OutputStream outStream = openOutput(outputName);
+                    BufferedOutputStream out = new BufferedOutputStream(outStream, 1 << 16)) {
+                solver.solveAll(in, out);
+            } catch (IOException ex) {
+                Logger.getLogger(Sudoku.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        } else {
+            try (InputStream inStream = openInput(inputName);
+                    OutputStream outStream = openOutput(outputName);
+                    BufferedReader in = new BufferedReader(new InputStreamReader(inStream, StandardCharsets.US_ASCII), 1 << 16);
+                    BufferedOutputStream out = new BufferedOutputStream(outStream, 1 << 16)) {
+                solver.solveAll(in, out);
+            } catch (IOException ex) {
+                Logger.getLogger(Sudoku.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        System.err.println(solver.getReport());
+        if (solver.getStats() != null) {
+            System.err.println(solver.getStats());
+        }
+        if (solver.getCache() != null) {
+            System.err.println(solver.getCache());
+        }
+    }
+
+    /**
+     * @param name a file name, or '-' for the standard input
+     * @return the stream to read; closing it leaves the standard input open.
+     */
+    private static InputStream openInput(String name) throws FileNotFoundException {
+        if (!name.equals("-")) {
+            return new FileInputStream(name);
+        }
+        return new FilterInputStream(System.in) {
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * @param name a file name, or '-' for the standard output
+     * @return the stream to write; closing it only flushes the standard
+     * output, which stays open for the messages that follow.
+     */
+    private static OutputStream openOutput(String name) throws FileNotFoundException {
+        if (!name.equals("-")) {
+            return new FileOutputStream(name);
+        }
+        return new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    /**
+     * Generate puzzles with a unique solution, one per line.
+     *
+     * @param count the number of puzzles
+     * @param outputName the puzzle file, or '-' for the standard output
+     * @param size the size of the grids
+     * @param seed the same seed gives the same puzzles
+     * @param nbThreads the number of threads generating puzzles
+     */
+    private static void generateFile(long count, String outputName, int size, long seed, int nbThreads) {
+        PuzzleGenerator generator = new PuzzleGenerator(size, seed);
+        long start = System.nanoTime();
+        try (OutputStream outStream = openOutput(outputName);
+                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(outStream, StandardCharsets.US_ASCII), 1 << 16)) {
+            generator.generateAll(count, out, nbThreads);
+        } catch (IOException ex) {
+            Logger.getLogger(Sudoku.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        System.err.println(count + " puzzles generated, "
+                + String.format("%.0f", count * 1e9 / (System.nanoTime() - start)) + " puzzles/sec.");
+    }
+
+    /**
+     * Convert a text file of puzzles into a packed file.
+     *
+     * @param inputName the puzzle file, or '-' for the standard input
+     * @param outputName the packed file
+     */
+    private static void packFile(String inputName, String outputName) {
+        try (InputStream inStream = openInput(inputName);
+                BufferedReader in = new BufferedReader(new InputStreamReader(inStream, StandardCharsets.US_ASCII), 1 << 16)) {
+            long count = PackedPuzzles.convert(in, Paths.get(outputName));
+            System.err.println(count + " puzzles packed.");
+        } catch (IOException ex) {
+            Logger.getLogger(Sudoku.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Rate every puzzle of a file, one puzzle per line; see DifficultyRater.
+     *
+     * @param inputName the puzzle file, or '-' for the standard input
+     * @param outputName the rating file, or '-' for the standard output
+     */
+    private static void rateFile(String inputName, String outputName) {
+        long start = System.nanoTime();
+        long count = 0;
+        try (InputStream inStream = openInput(inputName);
+                BufferedReader in = new BufferedReader(new InputStreamReader(inStream, StandardCharsets.US_ASCII), 1 << 16);
+                OutputStream outStream = openOutput(outputName);
+                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(outStream, StandardCharsets.US_ASCII), 1 << 16)) {
+            count = new DifficultyRater().rateAll(in, out);
+        } catch (IOException ex) {
+            Logger.getLogger(Sudoku.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        System.err.println(count + " puzzles rated, "
+                + String.format("%.0f", count * 1e9 / (System.nanoTime() - start)) + " puzzles/sec.");
+    }
+
+    /**
+     * Run a SolveService on the loopback address until the program is
+     * stopped; the latency statistics are printed when it stops.
+     *
+     * @param port the port, 0 for any free port
+     * @param nbWorkers the number of threads solving puzzles
+     */
+    private static void serve(int port, int nbWorkers) {
+        SolveService service = new SolveService(nbWorkers, 64);
+        if (Boolean.getBoolean("sudoku.metrics")) {
+            service.getStats().register("service");
+        }
+        try {
+            int actualPort = service.start(port);
+            System.err.println("Solving on http://127.0.0.1:" + actualPort + "/solve");
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                service.close();
+                System.err.println(service.getStats());
+            }));
+        } catch (IOException ex) {
+            Logger.getLogger(Sudoku.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Check every grid of a file, one grid per line, with a BatchVerifier,
+     * and print how many are solved.
+     *
+     * @param inputName the grid file, or '-' for the standard input
+     */
+    private static void verifyFile(String inputName) {
+        long start = System.nanoTime();
+        long nbGrids = 0;
+        long nbSolved = 0;
+        long nbInvalid = 0;
+        BatchVerifier verifier = null;
+        Grid grid = new Grid();
+        try (InputStream inStream = openInput(inputName);
+                BufferedReader in = new BufferedReader(new InputStreamReader(inStream, StandardCharsets.US_ASCII), 1 << 16)) {
+            String text;
+            while ((text = in.readLine()) != null) {
+                text = text.trim();
+                if (text.isEmpty()) {
+                    continue;
+                }
+                nbGrids++;
+                try {
+                    int size = Grid.sizeOf(text);
+                    if (grid.getSize() != size) {
+                        grid = new Grid(size);
+                    }
+                    grid.initGrid(text);
+                } catch (IllegalArgumentException e) {
+                    nbInvalid++;
+                    continue;
+                }
+                if (verifier != null && (verifier.getSize() != grid.getSize()
+                        || verifier.getCount() == verifier.getCapacity())) {
+                    nbSolved += verifier.verify();
+                    verifier.clear();
+                }
+                if (verifier == null || verifier.getSize() != grid.getSize()) {
+                    verifier = new BatchVerifier(grid.getSize(), 4096);
+                }
+                verifier.add(grid);
+            }
+            if (verifier != null) {
+                nbSolved += verifier.verify();
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(Sudoku.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        System.err.println(nbGrids + " grids, " + nbSolved + " solved, " + nbInvalid + " invalid"
+                + (verifier != null && verifier.isVectorized() ? ", vectorized" : "") + ", "
+                + String.format("%.0f", nbGrids * 1e9 / (System.nanoTime() - start)) + " grids/sec.");
     }
 
 }
@@ -0,0 +1,60 @@
+/**
+ * This file represents the techniques used by the rule-based solver.
+ */
+package sudoku;
+
+/**
+ * A technique that finds a digit or removes candidates, from the simplest to
+ * the hardest.
+ *
+ * @author arthurmanoha
+ */
+public enum Technique {
+
+    /**
+     * Rule two: the only candidate left in a square is elected.
+     */
+    NAKED_SINGLE,
+    /**
+     * Rule three: a digit that has only one place to go in a line, column or
+     * block is elected.
+     */
+    HIDDEN_SINGLE,
+    /**
+     * The candidates of a digit in a block are all in one line (or column):
+     * the digit is removed from the rest of that line.
+     */
+    POINTING,
+    /**
+     * The candidates of a digit in a line (or column) are all in one block:
+     * the digit is removed from the rest of that block.
+     */
+    BOX_LINE,
+    /**
+     * Two squares of a house have the same two candidates: these digits are
+     * removed from the other squares of the house.
+     */
+    NAKED_PAIR,
+    /**
+     * Two digits of a house may only go in the same two squares: the other
+     * candidates of these squares are removed.
+     */
+    HIDDEN_PAIR,
+    /**
+     * Three squares of a house have only three candidates between them.
+     */
+    NAKED_TRIPLE,
+    /**
+     * Three digits of a house may only go in the same three squares.
+     */
+    HIDDEN_TRIPLE,
+    /**
+     * A digit may only go in the same two columns of two lines (or the
+     * reverse): it is removed from the rest of these columns.
+     */
+    X_WING,
+    /**
+     * The same as X_WING, with three lines and three columns.
+     */
+    SWORDFISH
+}
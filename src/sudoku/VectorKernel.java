@@ -0,0 +1,45 @@
+/**
+ * This file represents the vector code of the batch verification.
+ */
+package sudoku;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The checks of BatchVerifier on as many grids at once as a vector has
+ * lanes: each lane follows one grid through the same houses. Only loaded
+ * through reflection, when the Vector API is available.
+ *
+ * @author arthurmanoha
+ */
+class VectorKernel implements BatchVerifier.Kernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void verify(int[] values, int stride, int end, int[] houseCells, int size,
+            int[] repeated, int[] missing) {
+        int allDigits = (1 << size) - 1;
+        IntVector one = IntVector.broadcast(SPECIES, 1);
+        IntVector zero = IntVector.zero(SPECIES);
+        for (int g = 0; g < end; g += SPECIES.length()) {
+            IntVector rep = zero;
+            IntVector miss = zero;
+            for (int house = 0; house < 3 * size; house++) {
+                IntVector seen = zero;
+                for (int i = 0; i < size; i++) {
+                    IntVector digits = IntVector.fromArray(SPECIES, values, houseCells[house * size + i] * stride + g);
+                    // 0 for an empty square.
+                    IntVector bits = one.lanewise(VectorOperators.LSHL, digits).lanewise(VectorOperators.LSHR, 1);
+                    rep = rep.or(seen.and(bits));
+                    seen = seen.or(bits);
+                }
+                miss = miss.or(seen.not().and(allDigits));
+            }
+            rep.intoArray(repeated, g);
+            miss.intoArray(missing, g);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * This file represents the tests of the rules and techniques.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The rules and techniques may only find digits of the solution, and may
+ * only remove candidates that are not.
+ *
+ * @author arthurmanoha
+ */
+class AdvancedRulesTest {
+
+    @Test
+    void eliminationsKeepTheSolution() {
+        for (String puzzle : GridTest.UNIQUE) {
+            Grid solved = new Grid(puzzle);
+            solved.solveWithPropagation();
+            int[] nbRemoved = new int[1];
+            Grid grid = new Grid(puzzle);
+            grid.solveLogically(new SolveListener() {
+                @Override
+                public void digitFound(int line, int col, int digit, Technique technique) {
+                    assertEquals(solved.getDigit(line, col), digit, technique + " in " + puzzle);
+                }
+
+                @Override
+                public void candidateRemoved(int line, int col, int digit, Technique technique) {
+                    assertNotEquals(solved.getDigit(line, col), digit, technique + " in " + puzzle);
+                    nbRemoved[0]++;
+                }
+            });
+            assertTrue(grid.isCorrect());
+        }
+    }
+
+    @Test
+    void eachTechniqueKeepsTheSolution() {
+        for (String puzzle : GridTest.UNIQUE) {
+            Grid solved = new Grid(puzzle);
+            solved.solveWithPropagation();
+            for (Technique technique : Technique.values()) {
+                if (technique.compareTo(Technique.HIDDEN_SINGLE) <= 0) {
+                    continue;
+                }
+                Candidates candidates = new Candidates(9);
+                int[] digits = CanonicalFormTest.digitsOf(puzzle);
+                Propagator propagator = new Propagator(candidates, digits);
+                propagator.setListener(new SolveListener() {
+                    @Override
+                    public void candidateRemoved(int line, int col, int digit, Technique t) {
+                        assertNotEquals(solved.getDigit(line, col), digit, t + " in " + puzzle);
+                    }
+                });
+                for (int i = 0; i < digits.length; i++) {
+                    if (digits[i] != 0) {
+                        candidates.place(i, digits[i]);
+                    }
+                }
+                assertTrue(propagator.start());
+                new AdvancedRules(candidates, propagator).apply(technique);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * This file represents the tests of the batch solver.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Every input line gives one output line, in the same order: the solution, or
+ * the line as it was read when it cannot be solved.
+ *
+ * @author arthurmanoha
+ */
+class BatchSolverTest {
+
+    private static String solve(BatchSolver solver, String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        solver.solveAll(new BufferedReader(new StringReader(text)), out);
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static String solution(String puzzle) {
+        Grid grid = new Grid(puzzle);
+        grid.solve();
+        return GridTest.line(grid);
+    }
+
+    @Test
+    void failedLinesAreWrittenAsRead() throws IOException {
+        String text = Grid.grid1 + "\n\n  " + GridTest.CONFLICT + "  \nnot a puzzle\n" + Grid.grid2 + "\n";
+        BatchSolver solver = new BatchSolver(1);
+        assertEquals(solution(Grid.grid1) + "\n" + GridTest.CONFLICT + "\nnot a puzzle\n"
+                + solution(Grid.grid2) + "\n", solve(solver, text));
+        assertEquals(4, solver.getNbPuzzles());
+        assertEquals(2, solver.getNbFailed());
+        assertEquals(2, solver.getNbSolved());
+    }
+
+    @Test
+    void threadsKeepTheInputOrder() throws IOException {
+        // Several chunks per thread, and sizes mixed within a chunk.
+        String[] puzzles = {Grid.grid1, Grid.grid2, Grid.grid3, Grid.grid4, Grid.grid6, Grid.grid7,
+            GridTest.CONFLICT, new PuzzleGenerator(16, 1).generate(0)};
+        String[] solutions = new String[puzzles.length];
+        for (int i = 0; i < puzzles.length; i++) {
+            solutions[i] = puzzles[i] == GridTest.CONFLICT ? puzzles[i] : solution(puzzles[i]);
+        }
+        StringBuilder text = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            text.append(puzzles[i % puzzles.length]).append('\n');
+            expected.append(solutions[i % puzzles.length]).append('\n');
+        }
+        assertEquals(expected.toString(), solve(new BatchSolver(1), text.toString()));
+        BatchSolver solver = new BatchSolver(3);
+        assertEquals(expected.toString(), solve(solver, text.toString()));
+        assertEquals(3000, solver.getNbPuzzles());
+        assertEquals(375, solver.getNbFailed());
+    }
+
+    @Test
+    void packedPuzzlesGiveTheSameLines(@TempDir Path dir) throws IOException {
+        String text = Grid.grid1 + "\n" + GridTest.CONFLICT + "\n" + Grid.grid7 + "\n";
+        Path file = dir.resolve("puzzles.sdkp");
+        PackedPuzzles.convert(new BufferedReader(new StringReader(text)), file);
+        for (int nbThreads : new int[]{1, 2}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BatchSolver solver = new BatchSolver(nbThreads);
+            try (PackedReader in = new PackedReader(file)) {
+                solver.solveAll(in, out);
+            }
+            assertEquals(solve(new BatchSolver(1), text), out.toString(StandardCharsets.US_ASCII));
+            assertEquals(1, solver.getNbFailed());
+        }
+    }
+
+    @Test
+    void statsCountEverySolve() throws IOException {
+        BatchSolver solver = new BatchSolver(2);
+        SolverStats stats = new SolverStats();
+        solver.setStats(stats);
+        solve(solver, Grid.grid1 + "\n" + Grid.grid2 + "\n" + GridTest.CONFLICT + "\n");
+        assertEquals(3, stats.getSolves());
+        assertEquals(2, stats.getSolved());
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * This file represents the tests of the batch verifier.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The vector kernel and the scalar one must both agree with
+ * Grid.isCorrect(), on valid grids and on grids with wrong or missing
+ * digits.
+ *
+ * @author arthurmanoha
+ */
+class BatchVerifierTest {
+
+    /**
+     * @return a solved grid of the given size, shuffled by relabeling its
+     * digits.
+     */
+    private static int[] solution(int size, Random random) {
+        int blockSize = (int) Math.round(Math.sqrt(size));
+        int[] labels = new int[size];
+        for (int i = 0; i < size; i++) {
+            labels[i] = i + 1;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = labels[i];
+            labels[i] = labels[j];
+            labels[j] = tmp;
+        }
+        int[] digits = new int[size * size];
+        for (int line = 0; line < size; line++) {
+            for (int col = 0; col < size; col++) {
+                int value = (blockSize * (line % blockSize) + line / blockSize + col) % size;
+                digits[line * size + col] = labels[value];
+            }
+        }
+        return digits;
+    }
+
+    /**
+     * @return a copy of the grid with a few squares changed to any value,
+     * emptied, or swapped; some of the changes keep the grid correct.
+     */
+    private static int[] corrupt(int[] digits, int size, Random random) {
+        int[] copy = digits.clone();
+        int nbChanges = random.nextInt(3);
+        for (int i = 0; i < nbChanges; i++) {
+            int cell = random.nextInt(copy.length);
+            switch (random.nextInt(3)) {
+                case 0:
+                    copy[cell] = random.nextInt(size + 1);
+                    break;
+                case 1:
+                    copy[cell] = 0;
+                    break;
+                default:
+                    int other = random.nextInt(copy.length);
+                    int tmp = copy[cell];
+                    copy[cell] = copy[other];
+                    copy[other] = tmp;
+                    break;
+            }
+        }
+        return copy;
+    }
+
+    private static boolean isFull(int[] digits) {
+        for (int digit : digits) {
+            if (digit == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    void vectorKernelIsLoaded() {
+        // The build runs the tests with the incubator module.
+        assertTrue(new BatchVerifier(9, 16).isVectorized());
+        assertFalse(new BatchVerifier(9, 16, false).isVectorized());
+    }
+
+    @Test
+    void kernelsAgreeWithGrid() {
+        Random random = new Random(1);
+        for (int size : new int[]{4, 9, 16, 25}) {
+            // Not a multiple of the lanes: the last vector is partly empty.
+            int nbGrids = 37;
+            BatchVerifier vector = new BatchVerifier(size, nbGrids, true);
+            BatchVerifier scalar = new BatchVerifier(size, nbGrids, false);
+            boolean[] correct = new boolean[nbGrids];
+            boolean[] solved = new boolean[nbGrids];
+            int nbSolved = 0;
+            Grid grid = new Grid(size);
+            for (int g = 0; g < nbGrids; g++) {
+                int[] digits = corrupt(solution(size, random), size, random);
+                grid.initGrid(digits);
+                correct[g] = grid.isCorrect();
+                solved[g] = correct[g] && isFull(digits);
+                if (solved[g]) {
+                    nbSolved++;
+                }
+                assertEquals(g, vector.add(digits));
+                assertEquals(g, scalar.add(grid));
+            }
+            assertTrue(nbSolved > 0 && nbSolved < nbGrids, "size " + size);
+            assertEquals(nbSolved, vector.verify(), "size " + size);
+            assertEquals(nbSolved, scalar.verify(), "size " + size);
+            for (int g = 0; g < nbGrids; g++) {
+                assertEquals(correct[g], vector.isCorrect(g), "size " + size + ", grid " + g);
+                assertEquals(correct[g], scalar.isCorrect(g), "size " + size + ", grid " + g);
+                assertEquals(solved[g], vector.isSolved(g), "size " + size + ", grid " + g);
+                assertEquals(solved[g], scalar.isSolved(g), "size " + size + ", grid " + g);
+            }
+        }
+    }
+
+    @Test
+    void clearedBatchForgetsTheLongerOne() {
+        // The squares of the grids removed must not count as repeats.
+        Random random = new Random(2);
+        BatchVerifier verifier = new BatchVerifier(9, 32);
+        int[] wrong = solution(9, random);
+        wrong[0] = wrong[1];
+        for (int g = 0; g < 20; g++) {
+            verifier.add(wrong);
+        }
+        assertEquals(0, verifier.verify());
+        verifier.clear();
+        verifier.add(solution(9, random));
+        assertEquals(1, verifier.verify());
+        assertThrows(IndexOutOfBoundsException.class, () -> verifier.isCorrect(1));
+    }
+
+    @Test
+    void badInputIsRejected() {
+        BatchVerifier verifier = new BatchVerifier(4, 1);
+        assertEquals(16, verifier.getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> verifier.add(new int[9]));
+        assertThrows(IllegalArgumentException.class, () -> verifier.add(new Grid(9)));
+        int[] digits = new int[16];
+        digits[3] = 5;
+        assertThrows(IllegalArgumentException.class, () -> verifier.add(digits));
+        for (int g = 0; g < 16; g++) {
+            verifier.add(new int[16]);
+        }
+        assertThrows(IllegalStateException.class, () -> verifier.add(new int[16]));
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * This file represents the tests of the candidate masks.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Placing, removing and saving candidates must be exactly undone.
+ *
+ * @author arthurmanoha
+ */
+class CandidatesTest {
+
+    @Test
+    void unplaceUndoesPlace() {
+        Candidates candidates = new Candidates(9);
+        int[] before = new int[candidates.getStateLength()];
+        candidates.save(before, 0);
+        candidates.place(10, 4);
+        assertFalse(candidates.canPlace(16, 4));
+        assertFalse(candidates.canPlace(64, 4));
+        assertFalse(candidates.canPlace(20, 4));
+        assertTrue(candidates.canPlace(80, 4));
+        candidates.unplace(10, 4);
+        int[] after = new int[candidates.getStateLength()];
+        candidates.save(after, 0);
+        assertArrayEquals(before, after);
+    }
+
+    @Test
+    void restoreUndoesEliminations() {
+        Candidates candidates = new Candidates(9);
+        candidates.place(0, 1);
+        int[] state = new int[candidates.getStateLength() + 2];
+        candidates.save(state, 2);
+        assertTrue(candidates.restrict(1));
+        assertTrue(candidates.eliminate(2, 5));
+        assertEquals(8, candidates.count(1));
+        candidates.restore(state, 2);
+        assertEquals(9, candidates.count(1));
+        assertTrue(candidates.isCandidate(2, 5));
+    }
+}
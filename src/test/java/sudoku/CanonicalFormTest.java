@@ -0,0 +1,98 @@
+/**
+ * This file represents the tests of the canonical form.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The variants of a puzzle must share its canonical form, and the transform
+ * must map a grid back exactly.
+ *
+ * @author arthurmanoha
+ */
+class CanonicalFormTest {
+
+    static int[] digitsOf(String puzzle) {
+        int[] digits = new int[puzzle.length()];
+        for (int i = 0; i < digits.length; i++) {
+            digits[i] = Grid.symbolValue(puzzle.charAt(i));
+        }
+        return digits;
+    }
+
+    static int[] relabel(int[] digits) {
+        int[] label = {0, 3, 7, 1, 9, 5, 2, 8, 4, 6};
+        int[] result = new int[digits.length];
+        for (int i = 0; i < digits.length; i++) {
+            result[i] = label[digits[i]];
+        }
+        return result;
+    }
+
+    static int[] transpose(int[] digits) {
+        int[] result = new int[81];
+        for (int line = 0; line < 9; line++) {
+            for (int col = 0; col < 9; col++) {
+                result[col * 9 + line] = digits[line * 9 + col];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param lines the source line of each line of the result
+     */
+    static int[] moveLines(int[] digits, int[] lines) {
+        int[] result = new int[81];
+        for (int line = 0; line < 9; line++) {
+            System.arraycopy(digits, lines[line] * 9, result, line * 9, 9);
+        }
+        return result;
+    }
+
+    static int[] moveCols(int[] digits, int[] cols) {
+        return transpose(moveLines(transpose(digits), cols));
+    }
+
+    @Test
+    void variantsShareTheCanonicalForm() {
+        for (String puzzle : GridTest.UNIQUE) {
+            int[] digits = digitsOf(puzzle);
+            CanonicalForm form = new CanonicalForm(9);
+            form.compute(digits);
+            String key = form.getKey();
+
+            int[][] variants = {
+                relabel(digits),
+                transpose(digits),
+                moveLines(digits, new int[]{6, 7, 8, 0, 1, 2, 3, 4, 5}),
+                moveLines(digits, new int[]{2, 0, 1, 3, 5, 4, 8, 7, 6}),
+                moveCols(digits, new int[]{3, 4, 5, 8, 6, 7, 1, 0, 2}),
+                relabel(transpose(moveCols(digits, new int[]{1, 2, 0, 6, 7, 8, 3, 4, 5})))
+            };
+            for (int[] variant : variants) {
+                form.compute(variant);
+                assertEquals(key, form.getKey(), puzzle);
+            }
+        }
+    }
+
+    @Test
+    void transformMapsBackExactly() {
+        Grid grid = new Grid(Grid.grid3);
+        grid.solveWithPropagation();
+        int[] solution = digitsOf(GridTest.line(grid));
+        int[] variant = relabel(moveCols(solution, new int[]{8, 7, 6, 5, 4, 3, 2, 1, 0}));
+        CanonicalForm form = new CanonicalForm(9);
+        form.compute(variant);
+        int[] canonical = new int[81];
+        int[] back = new int[81];
+        form.toCanonical(variant, canonical);
+        form.fromCanonical(canonical, back);
+        assertArrayEquals(variant, back);
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * This file represents the tests of the difficulty rater.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The difficulty follows the hardest technique needed, and the score grows
+ * with it; a puzzle the techniques cannot finish is diabolic.
+ *
+ * @author arthurmanoha
+ */
+class DifficultyRaterTest {
+
+    @Test
+    void difficultyFollowsTheHardestTechnique() {
+        DifficultyRater rater = new DifficultyRater();
+
+        Rating easy = rater.rate(Grid.grid4);
+        assertEquals(Difficulty.EASY, easy.getDifficulty());
+        assertEquals(Technique.HIDDEN_SINGLE, easy.getHardestTechnique());
+
+        Rating medium = rater.rate(Grid.grid1);
+        assertEquals(Difficulty.MEDIUM, medium.getDifficulty());
+        assertEquals(Technique.BOX_LINE, medium.getHardestTechnique());
+        assertTrue(medium.getCount(Technique.BOX_LINE) > 0);
+
+        Rating hard = rater.rate(Grid.grid2);
+        assertEquals(Difficulty.HARD, hard.getDifficulty());
+        assertEquals(Technique.NAKED_PAIR, hard.getHardestTechnique());
+
+        assertTrue(easy.getScore() < medium.getScore());
+        assertTrue(medium.getScore() < hard.getScore());
+        assertEquals(0, hard.getSearchNodes());
+    }
+
+    @Test
+    void searchMakesAPuzzleDiabolic() {
+        DifficultyRater rater = new DifficultyRater();
+        Rating diabolic = rater.rate(Grid.grid3);
+        assertEquals(Difficulty.DIABOLIC, diabolic.getDifficulty());
+        assertTrue(diabolic.isSolvable());
+        assertTrue(diabolic.getSearchNodes() > 0);
+        assertTrue(diabolic.getScore() > rater.rate(Grid.grid2).getScore());
+
+        Rating conflict = rater.rate(GridTest.CONFLICT);
+        assertEquals(Difficulty.DIABOLIC, conflict.getDifficulty());
+        assertFalse(conflict.isSolvable());
+    }
+
+    @Test
+    void reusedRaterGivesTheSameRatings() {
+        // Other sizes in between replace the grid and the solver.
+        DifficultyRater rater = new DifficultyRater();
+        String puzzle16 = new PuzzleGenerator(16, 1).generate(0);
+        String[] puzzles = {Grid.grid1, Grid.grid3, puzzle16, Grid.grid5, Grid.grid3, puzzle16};
+        for (String puzzle : puzzles) {
+            Rating first = new DifficultyRater().rate(puzzle);
+            Rating again = rater.rate(puzzle);
+            assertEquals(first.getDifficulty(), again.getDifficulty(), puzzle);
+            assertEquals(first.getScore(), again.getScore(), puzzle);
+            assertEquals(first.getSearchNodes(), again.getSearchNodes(), puzzle);
+        }
+    }
+
+    @Test
+    void rateAllWritesOneLinePerPuzzle() throws IOException {
+        String text = Grid.grid4 + "\n\n" + "not a puzzle\n" + Grid.grid3 + "\n";
+        StringWriter out = new StringWriter();
+        DifficultyRater rater = new DifficultyRater();
+        assertEquals(3, rater.rateAll(new BufferedReader(new StringReader(text)), out));
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals(Grid.grid4 + " EASY " + rater.rate(Grid.grid4).getScore(), lines[0]);
+        assertEquals("not a puzzle INVALID", lines[1]);
+        assertTrue(lines[2].startsWith(Grid.grid3 + " DIABOLIC "), lines[2]);
+    }
+}
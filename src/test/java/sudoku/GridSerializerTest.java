@@ -0,0 +1,101 @@
+/**
+ * This file represents the tests of the grid serializer.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The bytes written must read as the same text as the formats they replace,
+ * whatever the initial capacity.
+ *
+ * @author arthurmanoha
+ */
+class GridSerializerTest {
+
+    @Test
+    void numbersAreWrittenInDecimal() {
+        // A capacity of one byte makes every append grow the buffer.
+        GridSerializer out = new GridSerializer(1);
+        for (long value : new long[]{0, 7, -7, 10, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            out.append(value).append(' ');
+        }
+        assertEquals("0 7 -7 10 1234567890123 " + Long.MAX_VALUE + " " + Long.MIN_VALUE + " ", out.toString());
+    }
+
+    @Test
+    void lineMatchesTheDigits() {
+        GridSerializer out = new GridSerializer(1);
+        Grid grid = new Grid(Grid.grid1);
+        out.appendLine(grid).newLine();
+        out.appendLine(CanonicalFormTest.digitsOf(Grid.grid5)).newLine();
+        String puzzle = new PuzzleGenerator(16, 1).generate(0);
+        out.appendLine(new Grid(puzzle));
+        assertEquals(Grid.grid1 + "\n" + Grid.grid5 + "\n" + puzzle, out.toString());
+    }
+
+    @Test
+    void boardShowsTheBlocks() {
+        Grid grid = new Grid("1000000000000000");
+        grid.placeDigit(0, 2, 3);
+        GridSerializer out = new GridSerializer();
+        out.appendBoard(grid);
+        assertEquals("1- 3- \n-- -- \n-- -- \n-- -- \n", out.toString());
+    }
+
+    @Test
+    void candidatesShowTheMaskOfEachSquare() {
+        Grid grid = new Grid(Grid.grid3);
+        assertFalse(grid.solveLogically().isSolved());
+        GridSerializer out = new GridSerializer(1);
+        out.appendCandidates(grid);
+        String[] lines = out.toString().split("\n");
+        assertEquals(9 + 3, lines.length);
+        int row = 0;
+        for (int line = 0; line < 9; line++) {
+            String text = lines[row];
+            row++;
+            String[] squares = text.replace("||", "").trim().split(" +");
+            assertEquals(9, squares.length, text);
+            for (int col = 0; col < 9; col++) {
+                int digit = grid.getDigit(line, col);
+                String expected;
+                if (digit != 0) {
+                    expected = "<" + digit + ">";
+                } else {
+                    StringBuilder candidates = new StringBuilder();
+                    for (int k = 0; k < 9; k++) {
+                        boolean allowed = (grid.getCandidateMask(line, col) & (1 << k)) != 0;
+                        candidates.append(allowed ? Grid.symbolOf(k + 1) : '-');
+                    }
+                    expected = candidates.toString();
+                }
+                assertEquals(expected, squares[col], text);
+            }
+            if (line % 3 == 2) {
+                assertEquals("-".repeat(lines[row].length()), lines[row]);
+                row++;
+            }
+        }
+    }
+
+    @Test
+    void writeToEmptiesTheBuffer() throws IOException {
+        GridSerializer out = new GridSerializer(4);
+        out.append("abc").newLine();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        out.writeTo(stream);
+        assertEquals(0, out.getLength());
+        out.append(42);
+        out.writeTo(Channels.newChannel(stream));
+        assertEquals(0, out.getLength());
+        assertEquals("abc\n42", stream.toString(StandardCharsets.US_ASCII));
+    }
+}
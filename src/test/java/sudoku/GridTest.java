@@ -0,0 +1,266 @@
+/**
+ * This file represents the tests of the solvers of Grid.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every solver must find a correct grid that keeps the givens, and the same
+ * one when the solution is unique.
+ *
+ * @author arthurmanoha
+ */
+class GridTest {
+
+    static final String[] UNIQUE = {Grid.grid1, Grid.grid2, Grid.grid3, Grid.grid4, Grid.grid6, Grid.grid7};
+
+    // Two 5s in the first line.
+    static final String CONFLICT = "550000000" + "000000000" + "000000000"
+            + "000000000" + "000000000" + "000000000"
+            + "000000000" + "000000000" + "000000000";
+
+    static String line(Grid grid) {
+        StringBuilder sb = new StringBuilder();
+        grid.appendLine(sb);
+        return sb.toString();
+    }
+
+    static void assertSolves(String puzzle, Grid grid) {
+        String solution = line(grid);
+        assertTrue(grid.isCorrect(), solution);
+        for (int i = 0; i < puzzle.length(); i++) {
+            assertTrue(solution.charAt(i) != '0', solution);
+            if (puzzle.charAt(i) != '0') {
+                assertEquals(puzzle.charAt(i), solution.charAt(i), solution);
+            }
+        }
+    }
+
+    /**
+     * @return the solutions of every solver, in a fixed order.
+     */
+    static String[] solveWithAll(String puzzle) {
+        String[] solutions = new String[5];
+        Grid grid = new Grid(puzzle);
+        assertTrue(grid.solveWithBacktrack());
+        assertSolves(puzzle, grid);
+        solutions[0] = line(grid);
+        grid = new Grid(puzzle);
+        assertTrue(grid.solveWithPropagation());
+        assertSolves(puzzle, grid);
+        solutions[1] = line(grid);
+        grid = new Grid(puzzle);
+        assertTrue(grid.solveWithDancingLinks());
+        assertSolves(puzzle, grid);
+        solutions[2] = line(grid);
+        grid = new Grid(puzzle);
+        assertTrue(grid.solveWithLogicAndSearch());
+        assertSolves(puzzle, grid);
+        solutions[3] = line(grid);
+        grid = new Grid(puzzle);
+        assertTrue(grid.solveInParallel(2));
+        assertSolves(puzzle, grid);
+        solutions[4] = line(grid);
+        return solutions;
+    }
+
+    @Test
+    void solversAgreeOnBundledGrids() {
+        for (String puzzle : UNIQUE) {
+            String[] solutions = solveWithAll(puzzle);
+            for (String solution : solutions) {
+                assertEquals(solutions[0], solution, puzzle);
+            }
+            assertTrue(new Grid(puzzle).hasUniqueSolution(), puzzle);
+        }
+    }
+
+    @Test
+    void grid5HasNineSolutions() {
+        solveWithAll(Grid.grid5);
+        assertEquals(9, new Grid(Grid.grid5).countSolutions(100));
+        assertEquals(9, new Grid(Grid.grid5).countSolutions(100, 2));
+        assertFalse(new Grid(Grid.grid5).hasUniqueSolution());
+    }
+
+    @Test
+    void reusedGridSearchesLikeANewOne() {
+        // The search of the second puzzle used to miss hidden singles after
+        // the first one met a contradiction in a pass of the rules.
+        PuzzleGenerator generator = new PuzzleGenerator(16, 1);
+        String first = generator.generate(1);
+        String second = generator.generate(0);
+        Grid grid = new Grid(first);
+        assertTrue(grid.solveWithLogicAndSearch());
+        grid.initGrid(second);
+        SolveResult reused = grid.solveWithLogicAndSearch(new SolveBudget());
+        assertTrue(reused.isSolved());
+        assertSolves(second, grid);
+        SolveResult fresh = new Grid(second).solveWithLogicAndSearch(new SolveBudget());
+        assertEquals(fresh.getMetrics().getNodes(), reused.getMetrics().getNodes());
+    }
+
+    @Test
+    void solvePicksTheSolverBySize() {
+        Grid grid = new Grid(Grid.grid1);
+        assertTrue(grid.solve());
+        assertSolves(Grid.grid1, grid);
+        grid = new Grid(Grid.grid1);
+        assertEquals("propagation", grid.solve(new SolveBudget()).getMetrics().getSolver());
+
+        PuzzleGenerator generator = new PuzzleGenerator(Grid.LOGIC_SEARCH_MIN_SIZE, 1);
+        generator.setTargetClues(400);
+        String puzzle = generator.generate(0);
+        grid = new Grid(puzzle);
+        assertTrue(grid.solve());
+        assertSolves(puzzle, grid);
+        grid = new Grid(puzzle);
+        SolveResult result = grid.solve(new SolveBudget());
+        assertTrue(result.isSolved());
+        assertEquals("logicSearch", result.getMetrics().getSolver());
+        assertSolves(puzzle, grid);
+    }
+
+    @Test
+    void conflictingGivensHaveNoSolution() {
+        assertFalse(new Grid(CONFLICT).isCorrect());
+        assertFalse(new Grid(CONFLICT).solveWithBacktrack());
+        assertFalse(new Grid(CONFLICT).solveWithPropagation());
+        assertFalse(new Grid(CONFLICT).solveWithDancingLinks());
+        assertFalse(new Grid(CONFLICT).solveWithLogicAndSearch());
+        assertFalse(new Grid(CONFLICT).solveInParallel(2));
+        assertEquals(0, new Grid(CONFLICT).countSolutions(2));
+    }
+
+    /**
+     * After any solver, placeDigit() must still refuse a digit already in the
+     * line.
+     */
+    static void assertPlaceDigitChecksRules(Grid grid) {
+        String before = line(grid);
+        for (int line = 0; line < 9; line++) {
+            for (int col = 0; col < 9; col++) {
+                int digit = grid.getDigit(line, col);
+                int other = grid.getDigit(line, (col + 1) % 9);
+                assertFalse(grid.canPlaceDigit(line, col, other));
+                assertFalse(grid.placeDigit(line, col, other));
+                assertTrue(grid.placeDigit(line, col, digit));
+            }
+        }
+        assertTrue(grid.isCorrect());
+        assertEquals(before, line(grid));
+    }
+
+    @Test
+    void solversKeepTheCandidatesInStep() {
+        Grid grid = new Grid(Grid.grid3);
+        grid.solveWithPropagation();
+        assertPlaceDigitChecksRules(grid);
+        grid = new Grid(Grid.grid3);
+        grid.solveWithPropagation(new SolveBudget());
+        assertPlaceDigitChecksRules(grid);
+        grid = new Grid(Grid.grid3);
+        grid.solveWithDancingLinks();
+        assertPlaceDigitChecksRules(grid);
+        grid = new Grid(Grid.grid3);
+        grid.solveInParallel(2);
+        assertPlaceDigitChecksRules(grid);
+        grid = new Grid(Grid.grid3);
+        grid.solveWithLogicAndSearch();
+        assertPlaceDigitChecksRules(grid);
+        grid = new Grid(Grid.grid3);
+        grid.solveWithBacktrack();
+        assertPlaceDigitChecksRules(grid);
+
+        // The path of the solution cache.
+        SolutionCache cache = new SolutionCache(4);
+        grid = new Grid(Grid.grid3);
+        cache.solve(grid);
+        grid = new Grid(Grid.grid3);
+        assertTrue(cache.solve(grid));
+        assertPlaceDigitChecksRules(grid);
+    }
+
+    @Test
+    void budgetStopsTheSearch() {
+        Grid grid = new Grid(Grid.grid1);
+        SolveResult result = grid.solveWithBacktrack(new SolveBudget().setMaxNodes(10));
+        assertEquals(SolveStatus.BUDGET_EXCEEDED, result.getStatus());
+        assertEquals(Grid.grid1, line(grid));
+        assertTrue(grid.solveWithPropagation(new SolveBudget()).isSolved());
+    }
+
+    @Test
+    void budgetStopsDancingLinks() {
+        Grid grid = new Grid(Grid.grid1);
+        SolveResult result = grid.solveWithDancingLinks(new SolveBudget().setMaxNodes(2));
+        assertEquals(SolveStatus.BUDGET_EXCEEDED, result.getStatus());
+        assertEquals(Grid.grid1, line(grid));
+        // The matrix was uncovered: the same grid solves afterwards.
+        assertTrue(grid.solveWithDancingLinks(new SolveBudget()).isSolved());
+        assertSolves(Grid.grid1, grid);
+        assertTrue(new Grid(Grid.grid2).solveWithDancingLinks());
+    }
+
+    @Test
+    void budgetStopsAllThreads() {
+        // The rules and the techniques alone do not solve this one.
+        String puzzle = new PuzzleGenerator(16, 1).generate(1);
+        Grid grid = new Grid(puzzle);
+        SolveResult result = grid.solveInParallel(2, new SolveBudget().setMaxNodes(2));
+        assertEquals(SolveStatus.BUDGET_EXCEEDED, result.getStatus());
+        assertEquals(puzzle, line(grid));
+        SolveBudget cancelled = new SolveBudget();
+        cancelled.cancel();
+        assertEquals(SolveStatus.CANCELLED, grid.solveInParallel(2, cancelled).getStatus());
+        assertTrue(grid.solveInParallel(2, new SolveBudget()).isSolved());
+        assertSolves(puzzle, grid);
+        assertEquals(SolveStatus.UNSOLVABLE, new Grid(CONFLICT).solveInParallel(2, new SolveBudget()).getStatus());
+    }
+
+    @Test
+    void parallelSearchUsesAllItsThreads() {
+        // Grid caps the threads at the processors; the search itself does
+        // not, so the pool is tested on any machine.
+        ParallelSearch search = new ParallelSearch(9, 4);
+        int[][] digits = digitsOf(Grid.grid5);
+        assertEquals(9, search.countSolutions(digits, 100));
+        assertEquals(Grid.grid5, rowsToLine(digits));
+
+        String puzzle = new PuzzleGenerator(16, 1).generate(1);
+        search = new ParallelSearch(16, 4);
+        digits = digitsOf(puzzle);
+        assertEquals(SolveStatus.SOLVED, search.solve(digits, null));
+        assertSolves(puzzle, new Grid(rowsToLine(digits)));
+        // The same threads and solvers, again.
+        digits = digitsOf(puzzle);
+        SolveBudget budget = new SolveBudget().setMaxNodes(2);
+        budget.start();
+        assertEquals(SolveStatus.BUDGET_EXCEEDED, search.solve(digits, budget));
+    }
+
+    private static int[][] digitsOf(String puzzle) {
+        int[] cells = CanonicalFormTest.digitsOf(puzzle);
+        int size = (int) Math.round(Math.sqrt(cells.length));
+        int[][] digits = new int[size][size];
+        for (int cell = 0; cell < cells.length; cell++) {
+            digits[cell / size][cell % size] = cells[cell];
+        }
+        return digits;
+    }
+
+    private static String rowsToLine(int[][] digits) {
+        StringBuilder line = new StringBuilder();
+        for (int[] row : digits) {
+            for (int digit : row) {
+                line.append(Grid.symbolOf(digit));
+            }
+        }
+        return line.toString();
+    }
+}
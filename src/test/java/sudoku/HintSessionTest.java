@@ -0,0 +1,154 @@
+/**
+ * This file represents the tests of the hint sessions.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A session must count the digits exactly through placements and erasures,
+ * and its hints must lead to the solution.
+ *
+ * @author arthurmanoha
+ */
+class HintSessionTest {
+
+    @Test
+    void eraseGivesTheCandidatesBack() {
+        HintSession session = new HintSession(Grid.grid6);
+        // (0, 2) is empty; 5 is not allowed in the first line.
+        int before = session.getCandidates(0, 2);
+        assertEquals(0, before & (1 << 4));
+        int digit = Integer.numberOfTrailingZeros(before) + 1;
+        int peerBefore = session.getCandidates(0, 3);
+        assertTrue(session.place(0, 2, digit));
+        assertEquals(0, session.getCandidates(0, 2));
+        assertEquals(0, session.getCandidates(0, 3) & (1 << (digit - 1)));
+        assertTrue(session.erase(0, 2));
+        assertEquals(before, session.getCandidates(0, 2));
+        assertEquals(peerBefore, session.getCandidates(0, 3));
+        assertFalse(session.place(0, 0, 1));
+        assertEquals(5, session.getDigit(0, 0));
+    }
+
+    @Test
+    void conflictsAreCountedExactly() {
+        HintSession session = new HintSession(Grid.grid6);
+        int[] squares = new int[81];
+        // 5 is given at (0, 0).
+        assertTrue(session.place(0, 2, 5));
+        assertTrue(session.place(2, 0, 5));
+        assertTrue(session.hasConflicts());
+        assertEquals(3, session.getConflicts(squares));
+        assertTrue(session.isInConflict(0, 0));
+        assertNull(session.nextHint());
+        session.erase(0, 2);
+        assertEquals(2, session.getConflicts(squares));
+        assertFalse(session.isInConflict(0, 2));
+        session.place(2, 0, 1);
+        assertFalse(session.hasConflicts());
+        assertEquals(0, session.getConflicts(squares));
+    }
+
+    @Test
+    void hintsLeadToTheSolution() {
+        for (String puzzle : GridTest.UNIQUE) {
+            Grid solved = new Grid(puzzle);
+            solved.solveWithPropagation();
+            HintSession session = new HintSession(puzzle);
+            Hint hint;
+            while ((hint = session.nextHint()) != null) {
+                assertEquals(solved.getDigit(hint.getLine(), hint.getCol()), hint.getDigit(), hint.toString());
+                session.place(hint.getLine(), hint.getCol(), hint.getDigit());
+            }
+            if (session.isSolved()) {
+                for (int line = 0; line < 9; line++) {
+                    for (int col = 0; col < 9; col++) {
+                        assertEquals(solved.getDigit(line, col), session.getDigit(line, col));
+                    }
+                }
+            }
+        }
+        HintSession session = new HintSession(Grid.grid6);
+        assertNotNull(session.nextHint());
+    }
+
+    @Test
+    void movesKeepTheCandidatesOfTheTechniques() {
+        // Play the singles of grid2 until a pair is needed.
+        HintSession session = new HintSession(Grid.grid2);
+        Hint hint = session.nextHint();
+        while (hint.getTechnique() == Technique.NAKED_SINGLE || hint.getTechnique() == Technique.HIDDEN_SINGLE) {
+            session.place(hint.getLine(), hint.getCol(), hint.getDigit());
+            hint = session.nextHint();
+        }
+        String expected = hint.toString();
+
+        int empty = -1;
+        for (int cell = 80; empty < 0; cell--) {
+            if (session.getDigit(cell / 9, cell % 9) == 0
+                    && (cell / 9 != hint.getLine() || cell % 9 != hint.getCol())) {
+                empty = cell;
+            }
+        }
+        int line = empty / 9;
+        int col = empty % 9;
+        // A legal digit, then a conflicting one, then back to empty.
+        session.place(line, col, Integer.numberOfTrailingZeros(session.getCandidates(line, col)) + 1);
+        session.erase(line, col);
+        assertEquals(expected, session.nextHint().toString());
+        int conflicting = 1;
+        while ((session.getCandidates(line, col) & (1 << (conflicting - 1))) != 0) {
+            conflicting++;
+        }
+        session.place(line, col, conflicting);
+        assertNull(session.nextHint());
+        session.erase(line, col);
+        assertEquals(expected, session.nextHint().toString());
+
+        // The same as a new session on the same digits.
+        StringBuilder digits = new StringBuilder();
+        for (int cell = 0; cell < 81; cell++) {
+            digits.append(session.getDigit(cell / 9, cell % 9));
+        }
+        assertEquals(expected, new HintSession(digits.toString()).nextHint().toString());
+    }
+
+    @Test
+    void leastRecentlyUsedSessionsAreDropped() {
+        HintSessions sessions = new HintSessions(3 * new HintSession(Grid.grid6).getFootprint(), 0,
+                TimeUnit.SECONDS);
+        long first = sessions.open(Grid.grid1);
+        long second = sessions.open(Grid.grid2);
+        sessions.open(Grid.grid3);
+        assertNotNull(sessions.get(first));
+        sessions.open(Grid.grid4);
+        assertNull(sessions.get(second));
+        assertNotNull(sessions.get(first));
+        assertEquals(3, sessions.getNbSessions());
+        assertEquals(1, sessions.getNbEvictions());
+    }
+
+    @Test
+    void newSessionIsNeverDropped() {
+        HintSessions sessions = new HintSessions(new HintSession(Grid.grid6).getFootprint(), 0, TimeUnit.SECONDS);
+        long first = sessions.open(Grid.grid1);
+        long second = sessions.open(Grid.grid2);
+        assertNull(sessions.get(first));
+        assertNotNull(sessions.get(second));
+        assertEquals(1, sessions.getNbSessions());
+
+        // A 16x16 session alone takes more than the cap.
+        assertThrows(IllegalArgumentException.class, () -> sessions.open("0".repeat(256)));
+        assertNotNull(sessions.get(second));
+        assertEquals(1, sessions.getNbEvictions());
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * This file represents the tests of the packed puzzle format.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Packing then unpacking a puzzle must give it back.
+ *
+ * @author arthurmanoha
+ */
+class PackedPuzzlesTest {
+
+    @Test
+    void encodeThenDecodeGivesTheDigitsBack() {
+        Random random = new Random(1);
+        for (int size : new int[]{4, 9, 16, 25}) {
+            int[] digits = new int[size * size];
+            for (int i = 0; i < digits.length; i++) {
+                digits[i] = random.nextInt(size + 1);
+            }
+            ByteBuffer record = ByteBuffer.allocate(PackedPuzzles.recordLength(size) + 3);
+            record.position(3);
+            PackedPuzzles.encode(digits, size, record);
+            assertEquals(record.capacity(), record.position());
+            int[] decoded = new int[size * size];
+            PackedPuzzles.decode(record, 3, size, decoded);
+            assertArrayEquals(digits, decoded, "size " + size);
+        }
+    }
+
+    @Test
+    void convertThenReadGivesThePuzzlesBack(@TempDir Path dir) throws IOException {
+        String text = Grid.grid1 + "\n\n" + Grid.grid5 + "\n" + Grid.grid7 + "\n";
+        Path file = dir.resolve("puzzles.sdkp");
+        assertEquals(3, PackedPuzzles.convert(new BufferedReader(new StringReader(text)), file));
+        try (PackedReader in = new PackedReader(file)) {
+            assertEquals(9, in.getSize());
+            assertEquals(3, in.getCount());
+            Grid grid = new Grid();
+            in.readInto(0, grid);
+            assertEquals(Grid.grid1, GridTest.line(grid));
+            in.readInto(2, grid);
+            assertEquals(Grid.grid7, GridTest.line(grid));
+            in.readInto(1, grid);
+            assertEquals(Grid.grid5, GridTest.line(grid));
+        }
+    }
+
+    @Test
+    void failedPuzzleIsWrittenAsRead(@TempDir Path dir) throws IOException {
+        PuzzleGenerator generator = new PuzzleGenerator(25, 1);
+        generator.setTargetClues(400);
+        String puzzle = generator.generate(0);
+        Grid solved = new Grid(puzzle);
+        assertTrue(solved.solve());
+        String solution = GridTest.line(solved);
+        // A wrong digit in the first empty square that breaks no rule yet:
+        // the rules deduce digits before they find the contradiction.
+        int cell = puzzle.indexOf('0');
+        String wrong = null;
+        for (int digit = 1; wrong == null; digit++) {
+            char symbol = Grid.symbolOf(digit);
+            String candidate = puzzle.substring(0, cell) + symbol + puzzle.substring(cell + 1);
+            if (symbol != solution.charAt(cell) && new Grid(candidate).isCorrect()) {
+                wrong = candidate;
+            }
+        }
+
+        Path file = dir.resolve("puzzles.sdkp");
+        PackedPuzzles.convert(new BufferedReader(new StringReader(wrong + "\n" + puzzle + "\n")), file);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PackedReader in = new PackedReader(file)) {
+            new BatchSolver(1).solveAll(in, out);
+        }
+        assertEquals(wrong + "\n" + solution + "\n", out.toString(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * This file represents the tests of the puzzle generator.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every puzzle generated must have exactly one solution, whatever its size,
+ * and the sequence must not depend on the number of threads.
+ *
+ * @author arthurmanoha
+ */
+class PuzzleGeneratorTest {
+
+    static void assertUnique(int size, int count) {
+        PuzzleGenerator generator = new PuzzleGenerator(size, 42);
+        for (int i = 0; i < count; i++) {
+            String puzzle = generator.generate(i);
+            assertEquals(1, new Grid(puzzle).countSolutions(2), puzzle);
+        }
+    }
+
+    @Test
+    void puzzlesHaveOneSolution() {
+        assertUnique(4, 500);
+        assertUnique(9, 200);
+        assertUnique(16, 3);
+    }
+
+    @Test
+    void sequenceDoesNotDependOnThreads() throws IOException {
+        PuzzleGenerator generator = new PuzzleGenerator(9, 7);
+        StringWriter one = new StringWriter();
+        generator.generateAll(100, one, 1);
+        StringWriter three = new StringWriter();
+        generator.generateAll(100, three, 3);
+        assertEquals(one.toString(), three.toString());
+        assertEquals(generator.generate(99) + "\n", one.toString().substring(99 * 82));
+    }
+}
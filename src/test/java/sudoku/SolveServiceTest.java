@@ -0,0 +1,53 @@
+/**
+ * This file represents the tests of the solving service.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every puzzle submitted must be answered, or rejected at once when the
+ * queue is full.
+ *
+ * @author arthurmanoha
+ */
+class SolveServiceTest {
+
+    @Test
+    void fullQueueRejects() {
+        // Not started: nothing takes the puzzles from the queue.
+        SolveService service = new SolveService(1, 1, 2);
+        assertFalse(service.submit(Grid.grid1).isDone());
+        assertFalse(service.submit(Grid.grid2).isDone());
+        CompletableFuture<String> rejected = service.submit(Grid.grid3);
+        assertTrue(rejected.isCompletedExceptionally());
+        CompletionException e = assertThrows(CompletionException.class, rejected::join);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    void everyPuzzleIsAnswered() throws IOException {
+        try (SolveService service = new SolveService(2, 4)) {
+            service.setBudget(0, TimeUnit.SECONDS, 1);
+            service.start(0);
+            Grid solved = new Grid(Grid.grid6);
+            solved.solveWithPropagation();
+            assertEquals(GridTest.line(solved), service.submit(Grid.grid6).join());
+            assertEquals("no solution", service.submit(GridTest.CONFLICT).join());
+            assertEquals("invalid", service.submit("12x").join());
+            // An empty grid needs more than one node.
+            assertEquals("gave up", service.submit("0".repeat(81)).join());
+            assertEquals(4, service.getStats().getSolves());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * This file represents the tests of the solver statistics.
+ */
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The statistics add up the metrics of every solve, from any thread.
+ *
+ * @author arthurmanoha
+ */
+class SolverStatsTest {
+
+    private static SolveMetrics metrics(String solver, boolean solved, long nodes, int maxDepth, long wallNanos) {
+        SolveMetrics metrics = new SolveMetrics();
+        metrics.setSearch(nodes, nodes / 2, maxDepth);
+        metrics.setRules(3, 2, 1);
+        metrics.setOutcome(solver, solved, wallNanos);
+        return metrics;
+    }
+
+    @Test
+    void recordAddsUpTheMetrics() {
+        SolverStats stats = new SolverStats();
+        stats.record(metrics("propagation", true, 10, 4, 500), "first");
+        stats.record(metrics("dancingLinks", false, 20, 7, 3_000), "second");
+        stats.record(metrics("backtrack", true, 30, 5, 1_500), null);
+
+        assertEquals(3, stats.getSolves());
+        assertEquals(2, stats.getSolved());
+        assertEquals(60, stats.getNodes());
+        assertEquals(5 + 10 + 15, stats.getBacktracks());
+        assertEquals(7, stats.getMaxDepth());
+        assertEquals(9, stats.getRuleOne());
+        assertEquals(6, stats.getRuleTwo());
+        assertEquals(3, stats.getRuleThree());
+        assertEquals(5_000 / 1000.0 / 3, stats.getMeanMicros(), 1e-9);
+        assertEquals(3, stats.getSlowestMicros());
+        assertEquals("dancingLinks", stats.getSlowestSolver());
+        assertEquals("second", stats.getSlowestPuzzle());
+    }
+
+    @Test
+    void histogramBucketsArePowersOfTwoMicroseconds() {
+        SolverStats stats = new SolverStats();
+        // Under 1 us, 1 us, 2-3 us, then 100 times 1000-1023 us.
+        stats.record(metrics("propagation", true, 0, 0, 999), null);
+        stats.record(metrics("propagation", true, 0, 0, 1_000), null);
+        stats.record(metrics("propagation", true, 0, 0, 3_999), null);
+        for (int i = 0; i < 100; i++) {
+            stats.record(metrics("propagation", true, 0, 0, 1_000_000 + i), null);
+        }
+        long[] histogram = stats.getLatencyHistogram();
+        assertEquals(1, histogram[0]);
+        assertEquals(1, histogram[1]);
+        assertEquals(1, histogram[2]);
+        assertEquals(100, histogram[10]);
+        assertEquals(103, sum(histogram));
+
+        assertEquals(1, stats.getPercentileMicros(0.5));
+        assertEquals(4, stats.getPercentileMicros(2.9));
+        assertEquals(1024, stats.getPercentileMicros(50));
+        assertEquals(1024, stats.getPercentileMicros(100));
+        assertEquals(0, new SolverStats().getPercentileMicros(50));
+    }
+
+    private static long sum(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    @Test
+    void resetForgetsEverything() {
+        SolverStats stats = new SolverStats();
+        stats.record(metrics("propagation", true, 10, 4, 2_000), "puzzle");
+        stats.reset();
+        assertEquals(0, stats.getSolves());
+        assertEquals(0, stats.getNodes());
+        assertEquals(0, stats.getMaxDepth());
+        assertEquals(0, stats.getSlowestMicros());
+        assertNull(stats.getSlowestPuzzle());
+        assertArrayEquals(new long[stats.getLatencyHistogram().length], stats.getLatencyHistogram());
+    }
+
+    @Test
+    void threadsRecordWithoutLosingSolves() throws InterruptedException {
+        SolverStats stats = new SolverStats();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    stats.record(metrics("propagation", true, 1, 1, 1_000), null);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, stats.getSolves());
+        assertEquals(40_000, stats.getNodes());
+        assertEquals(40_000, stats.getLatencyHistogram()[1]);
+    }
+
+    @Test
+    void gridRecordsEachSolve() {
+        SolverStats stats = new SolverStats();
+        Grid grid = new Grid(Grid.grid3);
+        grid.setStats(stats);
+        assertTrue(grid.solveWithPropagation());
+        grid.initGrid(GridTest.CONFLICT);
+        grid.solveWithDancingLinks();
+        assertEquals(2, stats.getSolves());
+        assertEquals(1, stats.getSolved());
+        assertTrue(stats.getNodes() > 0);
+        assertEquals("dancingLinks", grid.getLastMetrics().getSolver());
+    }
+}